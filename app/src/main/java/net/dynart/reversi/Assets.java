@@ -0,0 +1,182 @@
+package net.dynart.reversi;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.media.AudioManager;
+import android.media.SoundPool;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Loads the font, the sounds and the bitmaps shared by the scenes, each
+ * of them only once and on a background thread. The bitmaps are loaded
+ * again only when the screen size changes. The font and all the bitmaps
+ * are loaded first, so the menu, or a restored game, can be shown while
+ * the sounds are loading. The bitmaps are published on the main thread,
+ * scenes are created after that. Sounds are skipped until all assets are
+ * loaded.
+ */
+public class Assets {
+
+    // fonts
+    public static Typeface typeface;
+
+    // sounds
+    public static int sound_menu;
+    public static int sound_move;
+    public static int sound_end;
+
+    public static SoundPool sound_pool;
+    public static AudioManager mgr;
+
+    // counted down when the font and the bitmaps and when all assets of
+    // the latest load are done
+    private static volatile CountDownLatch menu_ready;
+    private static volatile CountDownLatch ready;
+
+    private static Handler main_handler;
+
+    // listeners of load() waiting for the assets of the menu, only used on
+    // the main thread
+    private static final ArrayList<Runnable> menu_listeners = new ArrayList<Runnable>();
+
+    // screen size of the latest load
+    private static int loaded_width;
+    private static int loaded_height;
+
+    /**
+     * Starts loading on a background thread, the screen must be set up
+     * by Scene.init() first. The listener runs on the main thread when
+     * the assets of the menu are loaded, at once when everything is
+     * already loaded for this screen size
+     */
+    public static void load(Context context, final Runnable on_menu_ready)
+    {
+        if (main_handler == null)
+        {
+            main_handler = new Handler(Looper.getMainLooper());
+        }
+
+        if (ready != null && loaded_width == Scene.real_width && loaded_height == Scene.real_height)
+        {
+            if (isMenuReady())
+            {
+                main_handler.post(on_menu_ready);
+            }
+            else
+            {
+                menu_listeners.add(on_menu_ready);
+            }
+            return;
+        }
+
+        loaded_width = Scene.real_width;
+        loaded_height = Scene.real_height;
+
+        final Context app = context.getApplicationContext();
+        final CountDownLatch menu_latch = new CountDownLatch(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        menu_ready = menu_latch;
+        ready = latch;
+
+        menu_listeners.add(on_menu_ready);
+
+        if (mgr == null)
+        {
+            mgr = (AudioManager)app.getSystemService(Context.AUDIO_SERVICE);
+        }
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run()
+            {
+                long start = Startup.now();
+                final Scene.Bitmaps bitmaps = loadMenuAssets(app);
+                Startup.phase("menu assets", start);
+
+                main_handler.post(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        publishMenuAssets(menu_latch, bitmaps);
+                    }
+                });
+
+                start = Startup.now();
+                loadOtherAssets(app);
+                Startup.phase("other assets", start);
+
+                latch.countDown();
+            }
+        }, "assets");
+        thread.start();
+    }
+
+    // the menu draws the background, the discs of its board and text, and
+    // shows a message box on exit. The discs are in the atlas, so the game
+    // sprites packed with them come along, and a restored game can be
+    // shown at once
+    private static Scene.Bitmaps loadMenuAssets(Context context)
+    {
+        if (typeface == null)
+        {
+            typeface = Typeface.createFromAsset(context.getAssets(), "fonts/Enigma__2.TTF");
+        }
+
+        return Scene.loadBitmaps(context.getResources());
+    }
+
+    // runs on the main thread, where the scenes draw the bitmaps, so they
+    // are never replaced while a scene uses them
+    private static void publishMenuAssets(CountDownLatch latch, Scene.Bitmaps bitmaps)
+    {
+        // a load for another screen size was started since, its listeners
+        // wait for that one
+        if (latch != menu_ready)
+        {
+            bitmaps.recycle();
+            return;
+        }
+
+        Scene.setBitmaps(bitmaps);
+        latch.countDown();
+
+        ArrayList<Runnable> listeners = new ArrayList<Runnable>(menu_listeners);
+        menu_listeners.clear();
+        for (Runnable listener : listeners)
+        {
+            listener.run();
+        }
+    }
+
+    private static void loadOtherAssets(Context context)
+    {
+        if (sound_pool == null)
+        {
+            sound_pool = new SoundPool(4, AudioManager.STREAM_MUSIC, 100);
+
+            sound_menu = sound_pool.load(context, R.raw.menu, 1);
+            sound_move = sound_pool.load(context, R.raw.move, 1);
+            sound_end  = sound_pool.load(context, R.raw.end, 1);
+        }
+    }
+
+    public static boolean isReady()
+    {
+        CountDownLatch latch = ready;
+        return latch != null && latch.getCount() == 0;
+    }
+
+    /**
+     * Determines whether the assets of the menu are published
+     */
+    public static boolean isMenuReady()
+    {
+        CountDownLatch latch = menu_ready;
+        return latch != null && latch.getCount() == 0;
+    }
+
+}
@@ -0,0 +1,119 @@
+package net.dynart.reversi;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * The small bitmaps of the game packed into one bitmap, scaled to device
+ * pixels once per screen size, so drawing a sprite is an unscaled blit.
+ */
+public class Atlas {
+
+    // sprites
+    public static final int WHITE = 0;
+    public static final int WHITE_DOT = 1;
+    public static final int WHITE_X = 2;
+    public static final int BLACK = 3;
+    public static final int BLACK_DOT = 4;
+    public static final int BLACK_X = 5;
+    public static final int HIGHLIGHT = 6;
+    public static final int NUMBER_BG = 7;
+
+    private static final int[] RESOURCES = {
+        R.drawable.white, R.drawable.white_dot, R.drawable.white_x,
+        R.drawable.black, R.drawable.black_dot, R.drawable.black_x,
+        R.drawable.highlight, R.drawable.number_bg
+    };
+
+    // sprite sizes in screen units, the screen is 480 units high
+    private static final int[] WIDTHS = { 53, 53, 53, 53, 53, 53, 67, 110 };
+    private static final int[] HEIGHTS = { 53, 53, 53, 53, 53, 53, 67, 33 };
+
+    private final Bitmap bitmap;
+    private final Rect[] rects;
+
+    // reused by draw(), so a blit allocates nothing
+    private final Rect dst_rect = new Rect();
+
+    public Atlas(Resources resources, float pixel_ratio)
+    {
+        rects = new Rect[RESOURCES.length];
+
+        // the sprites are placed in one row with a pixel gap between them
+        int width = 0;
+        int height = 0;
+        for (int i = 0; i < RESOURCES.length; i++)
+        {
+            int w = Math.round(WIDTHS[i] * pixel_ratio);
+            int h = Math.round(HEIGHTS[i] * pixel_ratio);
+
+            rects[i] = new Rect(width, 0, width + w, h);
+
+            width += w + 1;
+            height = Math.max(height, h);
+        }
+
+        bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        paint.setFilterBitmap(true);
+
+        for (int i = 0; i < RESOURCES.length; i++)
+        {
+            Bitmap source = decode(resources, RESOURCES[i]);
+            canvas.drawBitmap(source, null, rects[i], paint);
+            source.recycle();
+        }
+    }
+
+    /**
+     * Decodes a bitmap resource at its own size. The resources are drawn in
+     * screen units, the density scaling of the system would only make a
+     * bigger bitmap to be scaled again
+     */
+    public static Bitmap decode(Resources resources, int id)
+    {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+
+        return BitmapFactory.decodeResource(resources, id, options);
+    }
+
+    /**
+     * Decodes a bitmap resource scaled to the specified size in pixels
+     */
+    public static Bitmap decode(Resources resources, int id, int width, int height)
+    {
+        Bitmap source = decode(resources, id);
+        Bitmap result = Bitmap.createScaledBitmap(source, width, height, true);
+
+        if (result != source)
+        {
+            source.recycle();
+        }
+
+        return result;
+    }
+
+    public void recycle()
+    {
+        bitmap.recycle();
+    }
+
+    /**
+     * Draws a sprite with its top left corner at the specified pixel
+     */
+    public void draw(Canvas canvas, int sprite, int left, int top)
+    {
+        Rect src = rects[sprite];
+        dst_rect.set(left, top, left + src.width(), top + src.height());
+
+        canvas.drawBitmap(bitmap, src, dst_rect, null);
+    }
+
+}
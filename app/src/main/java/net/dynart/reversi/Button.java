@@ -40,10 +40,20 @@ public class Button {
 
     public void draw(Canvas canvas, Scene scene)
     {
-        scene.drawRect(canvas, new RectF(r), transp, true);
+        scene.drawRect(canvas, scene.getRectF(r), transp, true);
         scene.drawText(canvas, text, r.left + (r.right - r.left) / 2, (r.bottom - r.top) / 2 + r.top - 20, 30, selected ? 183 : 80);
     }
 
+    public RectF getRectF()
+    {
+        return r;
+    }
+
+    public boolean isTransparent()
+    {
+        return transp;
+    }
+
     public void setTransparent(Coord down)
     {
         if (!enabled)
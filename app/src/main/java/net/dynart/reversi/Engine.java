@@ -0,0 +1,208 @@
+package net.dynart.reversi;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the computer calculations on a worker thread. The worker owns its
+ * own Board, so the transposition table is kept between moves, and the
+ * result is delivered on the main thread.
+ */
+public class Engine {
+
+    public interface Listener
+    {
+        void onMove(Coord move);
+    }
+
+    private final Board board;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Handler main_handler;
+
+    // id of the latest request, older results are thrown away
+    private final AtomicInteger request_id;
+
+    private boolean thinking;
+
+    public Engine(final Resources resources)
+    {
+        // one core is left for the user interface
+        Board.searchThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+        board = new Board();
+
+        thread = new HandlerThread("engine");
+        thread.start();
+
+        handler = new Handler(thread.getLooper());
+        main_handler = new Handler(Looper.getMainLooper());
+
+        request_id = new AtomicInteger();
+
+        thinking = false;
+
+        // the first job, so every search uses the pattern evaluation
+        // and the opening book
+        handler.post(new Runnable() {
+            @Override
+            public void run()
+            {
+                loadEvaluation(resources);
+                loadOpeningBook(resources);
+            }
+        });
+    }
+
+    private static void loadEvaluation(Resources resources)
+    {
+        InputStream in = resources.openRawResource(R.raw.eval_weights);
+        try
+        {
+            PatternEvaluation.load(in);
+        }
+        catch (IOException e)
+        {
+            // the board falls back to its simple evaluation
+            Log.w("Engine", "Can't load the evaluation weights", e);
+        }
+        finally
+        {
+            try
+            {
+                in.close();
+            }
+            catch (IOException e)
+            {
+                // nothing to do
+            }
+        }
+    }
+
+    private void loadOpeningBook(Resources resources)
+    {
+        // the book is stored uncompressed in the package, so it can be
+        // mapped into memory instead of read onto the heap
+        AssetFileDescriptor descriptor = resources.openRawResourceFd(R.raw.book);
+        if (descriptor == null)
+        {
+            return;
+        }
+
+        try
+        {
+            FileInputStream in = descriptor.createInputStream();
+            try
+            {
+                board.setOpeningBook(OpeningBook.map(in.getChannel(), descriptor.getStartOffset(), descriptor.getLength()));
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            Log.w("Engine", "Can't load the opening book", e);
+        }
+        finally
+        {
+            try
+            {
+                descriptor.close();
+            }
+            catch (IOException e)
+            {
+                // nothing to do
+            }
+        }
+    }
+
+    public boolean isThinking()
+    {
+        return thinking;
+    }
+
+    public void newGame()
+    {
+        cancel();
+
+        handler.post(new Runnable() {
+            @Override
+            public void run()
+            {
+                board.setStartPosition();
+            }
+        });
+    }
+
+    public void search(Position position, final SearchSettings settings, final Listener listener)
+    {
+        cancel();
+
+        final int id = request_id.get();
+        final Position request = position;
+
+        thinking = true;
+
+        handler.post(new Runnable() {
+            @Override
+            public void run()
+            {
+                if (id != request_id.get()) return;
+
+                board.setPosition(request);
+                board.setSettings(settings);
+
+                // setting the position clears the stop request, so a
+                // cancel which came before it would be lost
+                if (id != request_id.get()) return;
+
+                SearchResult result = board.search();
+                if (Log.isLoggable("Engine", Log.DEBUG))
+                {
+                    Log.d("Engine", result.toString());
+                }
+                final Coord move = result.getMove();
+
+                main_handler.post(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        if (id != request_id.get()) return;
+
+                        thinking = false;
+
+                        if (move != null)
+                        {
+                            listener.onMove(move);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    public void cancel()
+    {
+        request_id.incrementAndGet();
+        board.stop();
+
+        thinking = false;
+    }
+
+    public void quit()
+    {
+        cancel();
+        thread.quitSafely();
+    }
+}
@@ -6,22 +6,55 @@ import android.graphics.Canvas;
 import android.graphics.RectF;
 import android.view.MotionEvent;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 
-public class Game extends Scene {
+import java.io.IOException;
 
-    private int draw_count;
+public class Game extends Scene implements Engine.Listener {
+
+    // "Thinking..." animation frame time in ms
+    private static final int THINKING_FRAME_TIME = 300;
+
+    // texts built once, so drawing a frame allocates no strings
+    private static final String[] THINKING_TEXTS = {
+        "Thinking", "Thinking.", "Thinking..", "Thinking..."
+    };
+    private static final String[] COUNT_TEXTS = new String[65];
+
+    // key of the game record in the saved instance state
+    private static final String STATE_KEY = "game";
+
+    static
+    {
+        for (int i = 0; i < COUNT_TEXTS.length; i++)
+        {
+            COUNT_TEXTS[i] = Integer.toString(i);
+        }
+    }
+
+    // filled by the board on every frame
+    private final Coord[] moves = new Coord[64];
+
+    private final Engine engine;
     private Button but_restart;
     private Button but_menu;
     private boolean msg_restart;
     private Coord last_move;
+
+    // cells of the moves played, y * 8 + x
+    private final int[] history = new int[GameRecord.MAX_MOVES];
+    private int history_count;
+
     private int cpu;
+    private int difficulty;
     private boolean end;
 
     public Game(Context context)
     {
         super(context);
 
-        draw_count = 0;
+        engine = new Engine(getResources());
 
         but_restart = new Button(new RectF(458, 236, width - 20, 306), "Restart");
         but_menu = new Button(new RectF(458, 314, width - 20, 384), "Menu");
@@ -33,6 +66,11 @@ public class Game extends Scene {
 
         last_move = new Coord(0, 0);
 
+        for (int i = 0; i < moves.length; i++)
+        {
+            moves[i] = new Coord(0, 0);
+        }
+
         setKeepScreenOn(true);
     }
 
@@ -41,15 +79,114 @@ public class Game extends Scene {
         board.setStartPosition();
 
         last_move.x = -1;
+        history_count = 0;
 
         this.cpu = cpu;
+        difficulty = MenuDifficulty.getDifficulty();
 
         end = false;
+
+        engine.newGame();
+        startCpuMove();
+
+        onBoardChanged();
+        invalidate();
+    }
+
+    private boolean isCpuMove()
+    {
+        return ((!board.isDark() && cpu == Board.PIECE_LIGHT) || (board.isDark() && cpu == Board.PIECE_DARK)) && board.getGameResult() == GameResult.UNKNOWN;
     }
 
-    private RectF getHighlightRectF(Coord c)
+    private void startCpuMove()
     {
-        return new RectF(9 + c.x*53, 21 + c.y*53, 9 + c.x*53 + 67, 21 + c.y*53 + 67);
+        if (isCpuMove() && !engine.isThinking())
+        {
+            engine.search(board.getPosition(), MenuDifficulty.createSettings(difficulty), this);
+        }
+    }
+
+    @Override
+    public void onMove(Coord move)
+    {
+        if (!isCpuMove()) return;
+
+        board.makeMove(move);
+
+        setLastMove(move);
+
+        playSound(Assets.sound_move);
+
+        // the player may have to pass
+        startCpuMove();
+
+        onBoardChanged();
+    }
+
+    private void setLastMove(Coord move)
+    {
+        last_move.x = move.x;
+        last_move.y = move.y;
+
+        history[history_count++] = move.y * 8 + move.x;
+    }
+
+    // called after the board or the thinking state changes
+    private void onBoardChanged()
+    {
+        if (board.getGameResult() != GameResult.UNKNOWN)
+        {
+            if (!end)
+            {
+                playSound(Assets.sound_end);
+            }
+
+            end = true;
+        }
+
+        invalidate();
+    }
+
+    private void cancelCpuMove()
+    {
+        engine.cancel();
+
+        // the thinking indicator stops
+        onBoardChanged();
+    }
+
+    // the game is given up, so it isn't restored on the next start
+    private void backToMenu()
+    {
+        hideMsg();
+
+        cancelCpuMove();
+        GameStorage.delete(getContext());
+
+        Main main = (Main)getContext();
+        main.setScene(main.getMenu());
+    }
+
+    public void onPause()
+    {
+        cancelCpuMove();
+    }
+
+    public void onResume()
+    {
+        startCpuMove();
+        onBoardChanged();
+        invalidate();
+    }
+
+    public void release()
+    {
+        engine.quit();
+    }
+
+    private void drawHighlight(Canvas canvas, Coord c)
+    {
+        drawSprite(canvas, Atlas.HIGHLIGHT, 9 + c.x*53, 21 + c.y*53);
     }
 
     @Override
@@ -57,42 +194,36 @@ public class Game extends Scene {
     {
         super.onDraw(canvas);
 
-        Coord[] moves = board.getMoves();
+        int moves_count = board.getMoves(moves);
 
-        for (int i = 0; i < moves.length; i++)
+        for (int i = 0; i < moves_count; i++)
         {
-            drawBitmap(
-                    canvas, Scene.highlight, getHighlightRectF(moves[i])
-            );
+            drawHighlight(canvas, moves[i]);
         }
 
         if (last_move.x != -1)
         {
             if (board.isDark())
             {
-                drawBitmap(canvas, Scene.white_x, getDiscRectF(last_move.x, last_move.y));
+                drawDisc(canvas, Atlas.WHITE_X, last_move.x, last_move.y);
             }
             else
             {
-                drawBitmap(canvas, Scene.black_x, getDiscRectF(last_move.x, last_move.y));
+                drawDisc(canvas, Atlas.BLACK_X, last_move.x, last_move.y);
             }
         }
 
-        Integer count;
+        drawSprite(canvas, Atlas.WHITE, 451, 80);
+        if (!board.isDark()) drawSprite(canvas, Atlas.WHITE_DOT, 451, 80);
 
-        drawBitmap(canvas, Scene.white, new RectF(451, 80, 451 + 53, 80 + 53));
-        if (!board.isDark()) drawBitmap(canvas, Scene.white_dot, new RectF(451, 80, 451 + 53, 80 + 53));
+        drawSprite(canvas, Atlas.NUMBER_BG, 512, 90);
+        drawText(canvas, COUNT_TEXTS[board.getLightPiecesCount()], 512 + 55, 80 + 13, 20, 255);
 
-        drawBitmap(canvas, Scene.number_bg, new RectF(512, 90, 512 + 110, 90 + 33));
-        count = new Integer(board.getLightPiecesCount());
-        drawText(canvas, count.toString(), 512 + 55, 80 + 13, 20, 255);
+        drawSprite(canvas, Atlas.BLACK, 451, 140);
+        if (board.isDark()) drawSprite(canvas, Atlas.BLACK_DOT, 451, 140);
 
-        drawBitmap(canvas, Scene.black, new RectF(451, 140, 451 + 53, 140 + 53));
-        if (board.isDark()) drawBitmap(canvas, Scene.black_dot, new RectF(451, 140, 451 + 53, 140 + 53));
-
-        drawBitmap(canvas, Scene.number_bg, new RectF(512, 150, 512 + 110, 150 + 33));
-        count = new Integer(board.getDarkPiecesCount());
-        drawText(canvas, count.toString(), 512 + 55, 140 + 13, 20, 255);
+        drawSprite(canvas, Atlas.NUMBER_BG, 512, 150);
+        drawText(canvas, COUNT_TEXTS[board.getDarkPiecesCount()], 512 + 55, 140 + 13, 20, 255);
 
         if (board.getGameResult() == GameResult.DRAW)
         {
@@ -107,51 +238,23 @@ public class Game extends Scene {
             drawBoardMsg(canvas, "White wins!");
         }
 
-        if (board.getGameResult() != GameResult.UNKNOWN)
-        {
-            if (!end)
-            {
-                playSound(sound_end);
-            }
-
-            end = true;
-        }
-
         if (drawMsg(canvas)) return;
 
-        // update (silly, but works :)
+        // the engine works on its own thread, only animate while waiting
 
-        if (((!board.isDark() && cpu == Board.PIECE_LIGHT) || (board.isDark() && cpu == Board.PIECE_DARK)) && board.getGameResult() == GameResult.UNKNOWN)
+        if (engine.isThinking())
         {
-            drawBoardMsg(canvas, "Thinking...");
-
-            if (draw_count == 2)
-            {
-                Coord move = board.run();
-                board.makeMove(move);
-
-                last_move.x = move.x;
-                last_move.y = move.y;
-
-                draw_count = 0;
-
-                playSound(sound_move);
-
-                invalidate();
-            }
+            long frame = SystemClock.uptimeMillis() / THINKING_FRAME_TIME;
+            drawBoardMsg(canvas, THINKING_TEXTS[(int)(frame % 4)]);
 
-            if (draw_count < 2)
-            {
-                draw_count++;
-                invalidate();
-            }
+            postInvalidateDelayed(THINKING_FRAME_TIME);
         }
 
     }
 
     public void drawBoardMsg(Canvas canvas, String text)
     {
-        drawRect(canvas, new RectF(25, 220, 430, 276), true);
+        drawRect(canvas, getRectF(25, 220, 430, 276), true);
         drawText(canvas, text, 228, 223, 40, 0);
         drawText(canvas, text, 228, 220, 40, 255);
     }
@@ -180,31 +283,34 @@ public class Game extends Scene {
 
             if (board.makeMove(up))
             {
-                last_move.x = up.x;
-                last_move.y = up.y;
+                setLastMove(up);
+
+                playSound(Assets.sound_move);
 
-                playSound(sound_move);
+                startCpuMove();
+
+                onBoardChanged();
             }
         }
 
         // button events
         if (but_restart.isClicked(down, up))
         {
-            playSound(sound_menu);
+            playSound(Assets.sound_menu);
 
             showMsg("Restart game?");
             msg_restart = true;
         }
         else if (but_menu.isClicked(down, up))
         {
-            playSound(sound_menu);
+            playSound(Assets.sound_menu);
 
             showMsg("Back to menu?");
             msg_restart = false;
         }
         else if (msg_but_cancel.isClicked(down, up))
         {
-            playSound(sound_menu);
+            playSound(Assets.sound_menu);
 
             hideMsg();
         }
@@ -212,65 +318,121 @@ public class Game extends Scene {
         {
             if (msg_restart)
             {
-                playSound(sound_menu);
+                playSound(Assets.sound_menu);
 
                 start(cpu);
                 hideMsg();
             }
             else
             {
-                playSound(sound_menu);
-
-                hideMsg();
+                playSound(Assets.sound_menu);
 
-                Main main = (Main)getContext();
-                main.setScene(main.menu);
+                backToMenu();
             }
         }
 
-        invalidate();
-
         return true;
     }
 
     @Override
     public void onBackPressed()
     {
-        playSound(sound_menu);
+        playSound(Assets.sound_menu);
 
         if (!msg_show)
         {
             showMsg("Back to menu?");
             msg_restart = false;
 
-            invalidate();
-
             return;
         }
 
         if (msg_restart)
         {
             hideMsg();
-            invalidate();
         }
         else
         {
-            hideMsg();
-
-            Main main = (Main)getContext();
-            main.setScene(main.menu);
+            backToMenu();
         }
     }
 
-    public void saveState(Bundle bundle)
+    public boolean isFinished()
+    {
+        return board.getGameResult() != GameResult.UNKNOWN;
+    }
+
+    /**
+     * Returns the game in a compact binary form
+     */
+    public byte[] getRecord()
     {
+        return new GameRecord(
+            board.getPosition(), history, history_count, cpu, difficulty
+        ).encode();
+    }
+
+    /**
+     * Continues a game from a record returned by getRecord(). The stored
+     * position is set directly, so nothing is replayed or searched
+     */
+    public boolean setRecord(byte[] data)
+    {
+        GameRecord record;
+        try
+        {
+            record = GameRecord.decode(data);
+        }
+        catch (IOException e)
+        {
+            Log.w("Game", "Can't restore the game", e);
+            return false;
+        }
+
+        engine.newGame();
 
+        // a restart plays the same difficulty
+        MenuDifficulty.setDifficulty(record.getDifficulty());
+        difficulty = MenuDifficulty.getDifficulty();
+
+        board.setPosition(record.getPosition());
+        cpu = record.getComputerPiece();
+
+        history_count = record.getMovesCount();
+        for (int i = 0; i < history_count; i++)
+        {
+            history[i] = record.getMove(i);
+        }
+
+        int cell = record.getLastMove();
+        last_move.x = cell != -1 ? cell % 8 : -1;
+        last_move.y = cell != -1 ? cell / 8 : 0;
+
+        // the end sound was played before
+        end = isFinished();
+
+        startCpuMove();
+
+        onBoardChanged();
+        invalidate();
+
+        return true;
     }
 
+    public static boolean hasState(Bundle bundle)
+    {
+        return bundle != null && bundle.getByteArray(STATE_KEY) != null;
+    }
 
-    public void restoreState(Bundle bundle)
+    public void saveState(Bundle bundle)
     {
+        bundle.putByteArray(STATE_KEY, getRecord());
+    }
 
+    public boolean restoreState(Bundle bundle)
+    {
+        byte[] data = bundle.getByteArray(STATE_KEY);
+        return data != null && setRecord(data);
     }
 
 }
@@ -0,0 +1,158 @@
+package net.dynart.reversi;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Keeps the record of the current game in the local storage, so it
+ * survives even when the saved instance state is gone. The file is
+ * accessed only on a worker thread, in the order of the calls.
+ */
+public class GameStorage {
+
+    public interface Listener
+    {
+        // the record or null when there is none
+        void onLoad(byte[] data);
+    }
+
+    private static final String FILE_NAME = "game.bin";
+
+    private static Handler handler;
+    private static Handler main_handler;
+
+    private static synchronized Handler getHandler()
+    {
+        if (handler == null)
+        {
+            HandlerThread thread = new HandlerThread("storage");
+            thread.start();
+
+            handler = new Handler(thread.getLooper());
+            main_handler = new Handler(Looper.getMainLooper());
+        }
+
+        return handler;
+    }
+
+    public static void save(Context context, final byte[] data)
+    {
+        final File dir = context.getApplicationContext().getFilesDir();
+
+        getHandler().post(new Runnable() {
+            @Override
+            public void run()
+            {
+                // a new file replaces the old one, so a crash while writing
+                // leaves the previous record
+                File file = new File(dir, FILE_NAME);
+                File temp = new File(dir, FILE_NAME + ".tmp");
+                try
+                {
+                    FileOutputStream out = new FileOutputStream(temp);
+                    try
+                    {
+                        out.write(data);
+                        out.getFD().sync();
+                    }
+                    finally
+                    {
+                        out.close();
+                    }
+
+                    if (!temp.renameTo(file))
+                    {
+                        throw new IOException("Can't rename " + temp);
+                    }
+                }
+                catch (IOException e)
+                {
+                    Log.w("GameStorage", "Can't save the game", e);
+                }
+            }
+        });
+    }
+
+    public static void delete(Context context)
+    {
+        final File dir = context.getApplicationContext().getFilesDir();
+
+        getHandler().post(new Runnable() {
+            @Override
+            public void run()
+            {
+                new File(dir, FILE_NAME).delete();
+            }
+        });
+    }
+
+    /**
+     * Reads the record, the listener gets it on the main thread
+     */
+    public static void load(Context context, final Listener listener)
+    {
+        final File dir = context.getApplicationContext().getFilesDir();
+
+        getHandler().post(new Runnable() {
+            @Override
+            public void run()
+            {
+                final byte[] data = read(new File(dir, FILE_NAME));
+
+                main_handler.post(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        listener.onLoad(data);
+                    }
+                });
+            }
+        });
+    }
+
+    private static byte[] read(File file)
+    {
+        if (!file.exists()) return null;
+
+        try
+        {
+            FileInputStream in = new FileInputStream(file);
+            try
+            {
+                // a record is less than a hundred bytes
+                byte[] data = new byte[(int)Math.min(file.length(), 1024)];
+                int length = 0;
+                int count;
+                while (length < data.length && (count = in.read(data, length, data.length - length)) > 0)
+                {
+                    length += count;
+                }
+
+                if (length != data.length)
+                {
+                    throw new IOException("Can't read " + file);
+                }
+
+                return data;
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            Log.w("GameStorage", "Can't load the game", e);
+            return null;
+        }
+    }
+
+}
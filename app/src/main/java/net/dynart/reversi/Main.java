@@ -16,11 +16,11 @@ import androidx.core.view.WindowInsetsCompat;
 public class Main extends AppCompatActivity {
 
 
-    public Game game;
-    public Menu menu;
-    public MenuDifficulty menu_difficulty;
-    public MenuColor menu_color;
-    public Logo logo;
+    // scenes are created on their first use
+    private Game game;
+    private Menu menu;
+    private MenuDifficulty menu_difficulty;
+    private MenuColor menu_color;
 
     private Scene active_scene;
 
@@ -28,6 +28,8 @@ public class Main extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
+        Startup.begin();
+
         // set fullscreen
         requestWindowFeature(Window.FEATURE_NO_TITLE);
 
@@ -47,19 +49,86 @@ public class Main extends AppCompatActivity {
 
         Scene.init(metrics.widthPixels, metrics.heightPixels);
 
-        // start
-        game = new Game(this);
-        game.start(Board.PIECE_EMPTY);
+        EdgeToEdge.enable(this);
+
+        // the menu is shown as soon as the font and the bitmaps are loaded,
+        // the sounds are loaded in the background
+        final Bundle state = savedInstanceState;
+        Assets.load(this, new Runnable() {
+            @Override
+            public void run()
+            {
+                if (isFinishing() || isDestroyed()) return;
+
+                if (Game.hasState(state) && getGame().restoreState(state))
+                {
+                    setScene(game);
+                    return;
+                }
+
+                // a game left unfinished on the last run is continued
+                GameStorage.load(Main.this, new GameStorage.Listener() {
+                    @Override
+                    public void onLoad(byte[] data)
+                    {
+                        if (isFinishing() || isDestroyed()) return;
+
+                        if (data != null && getGame().setRecord(data) && !game.isFinished())
+                        {
+                            setScene(game);
+                            return;
+                        }
+
+                        long start = Startup.now();
+                        setScene(getMenu());
+                        Startup.phase("menu", start);
+                    }
+                });
+            }
+        });
+    }
 
-        menu = new Menu(this);
-        menu_difficulty = new MenuDifficulty(this);
-        menu_color = new MenuColor(this);
+    public Game getGame()
+    {
+        if (game == null)
+        {
+            long start = Startup.now();
+            game = new Game(this);
+            game.start(Board.PIECE_EMPTY);
+            Startup.phase("game", start);
+        }
+
+        return game;
+    }
 
-        //logo = new Logo(this);
+    public Menu getMenu()
+    {
+        if (menu == null)
+        {
+            menu = new Menu(this);
+        }
 
-        EdgeToEdge.enable(this);
+        return menu;
+    }
+
+    public MenuDifficulty getMenuDifficulty()
+    {
+        if (menu_difficulty == null)
+        {
+            menu_difficulty = new MenuDifficulty(this);
+        }
+
+        return menu_difficulty;
+    }
+
+    public MenuColor getMenuColor()
+    {
+        if (menu_color == null)
+        {
+            menu_color = new MenuColor(this);
+        }
 
-        setScene(menu);
+        return menu_color;
     }
 
     public void setScene(Scene scene)
@@ -68,9 +137,63 @@ public class Main extends AppCompatActivity {
         setContentView(scene);
 
     }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+
+        if (game != null && active_scene == game)
+        {
+            game.saveState(outState);
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+
+        // written on a worker thread
+        if (game != null && active_scene == game)
+        {
+            GameStorage.save(this, game.getRecord());
+        }
+
+        // don't let the engine think in the background
+        if (game != null)
+        {
+            game.onPause();
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        if (game != null)
+        {
+            game.onResume();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (game != null)
+        {
+            game.release();
+        }
+
+        super.onDestroy();
+    }
     @Override
     public void onBackPressed() {
 
+        // nothing is shown until the assets of the menu are loaded
+        if (active_scene == null)
+        {
+            super.onBackPressed();
+            return;
+        }
+
         active_scene.onBackPressed();
         return;
     }
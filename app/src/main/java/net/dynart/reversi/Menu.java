@@ -31,46 +31,44 @@ public class Menu extends Scene {
 
         if (event.getAction() != MotionEvent.ACTION_UP)
         {
-            invalidate();
             return true;
         }
 
         if (but_single.isClicked(down, up))
         {
-            playSound(sound_menu);
+            playSound(Assets.sound_menu);
 
             Main main = (Main)getContext();
-            main.setScene(main.menu_difficulty);
+            main.setScene(main.getMenuDifficulty());
         }
         else if (but_multi.isClicked(down, up))
         {
-            playSound(sound_menu);
+            playSound(Assets.sound_menu);
 
             Main main = (Main)getContext();
-            main.game.start(Board.PIECE_EMPTY);
-            main.setScene(main.game);
+            main.getGame().start(Board.PIECE_EMPTY);
+            main.setScene(main.getGame());
         }
         else if (but_sound.isClicked(down, up))
         {
             Scene.sound_on = !Scene.sound_on;
             but_sound.setSelected(Scene.sound_on);
+            invalidate();
         }
         else if (msg_but_ok.isClicked(down, up))
         {
-            playSound(sound_menu);
+            playSound(Assets.sound_menu);
 
             Main main = (Main)getContext();
             main.finish();
         }
         else if (msg_but_cancel.isClicked(down, up))
         {
-            playSound(sound_menu);
+            playSound(Assets.sound_menu);
 
             hideMsg();
         }
 
-        invalidate();
-
         return true;
     }
 
@@ -78,14 +76,6 @@ public class Menu extends Scene {
     public void onDraw(Canvas canvas)
     {
         super.onDraw(canvas);
-/*
-        canvas.save();
-        canvas.translate(40, 100);
-        canvas.rotate(45);
-
-        Scene.drawBitmap(canvas, Scene.dynart_splash, new RectF(-128, -128, 127, 127) );
-        canvas.restore();
-*/
 
         drawMsg(canvas);
     }
@@ -93,14 +83,12 @@ public class Menu extends Scene {
     @Override
     public void onBackPressed()
     {
-        playSound(sound_menu);
+        playSound(Assets.sound_menu);
 
         if (!msg_show)
         {
             showMsg("Exit game?");
 
-            invalidate();
-
             return;
         }
 
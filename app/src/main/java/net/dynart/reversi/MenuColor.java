@@ -27,7 +27,6 @@ public class MenuColor extends Scene {
 
         if (event.getAction() != MotionEvent.ACTION_UP)
         {
-            invalidate();
             return true;
         }
 
@@ -44,24 +43,22 @@ public class MenuColor extends Scene {
 
         if (cpu != 0)
         {
-            playSound(sound_menu);
+            playSound(Assets.sound_menu);
 
             Main main = (Main)getContext();
-            main.game.start(cpu);
-            main.setScene(main.game);
+            main.getGame().start(cpu);
+            main.setScene(main.getGame());
         }
 
-        invalidate();
-
         return true;
     }
 
     @Override
     public void onBackPressed()
     {
-        playSound(sound_menu);
+        playSound(Assets.sound_menu);
 
         Main main = (Main)getContext();
-        main.setScene(main.menu_difficulty);
+        main.setScene(main.getMenuDifficulty());
     }
 }
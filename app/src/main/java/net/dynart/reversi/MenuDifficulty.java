@@ -6,6 +6,14 @@ import android.view.MotionEvent;
 
 public class MenuDifficulty extends Scene {
 
+    // difficulties
+    public static final int EASY = 0;
+    public static final int MEDIUM = 1;
+    public static final int HARD = 2;
+
+    // difficulty of the next game
+    private static int difficulty = HARD;
+
     private Button but_easy;
     private Button but_medium;
     private Button but_hard;
@@ -23,6 +31,58 @@ public class MenuDifficulty extends Scene {
         buttons.add(but_hard);
     }
 
+    public static int getDifficulty()
+    {
+        return difficulty;
+    }
+
+    public static void setDifficulty(int d)
+    {
+        difficulty = d == EASY || d == MEDIUM ? d : HARD;
+    }
+
+    /**
+     * Returns the search settings of the difficulty, the rest of them are
+     * the board defaults. A new object is returned, so the engine thread
+     * never sees it change
+     */
+    public static SearchSettings createSettings(int d)
+    {
+        SearchSettings settings = new SearchSettings();
+
+        if (d == EASY)
+        {
+            settings.maxRunDepth = 1;
+            settings.endgameEmpties = 0;
+            settings.endgameWinLossDrawEmpties = 0;
+            settings.searchThreads = 1;
+            settings.useOpeningBook = false;
+        }
+        else if (d == MEDIUM)
+        {
+            settings.maxRunDepth = 3;
+            settings.endgameEmpties = 8;
+            settings.endgameWinLossDrawEmpties = 10;
+            settings.searchThreads = 1;
+            settings.useOpeningBook = true;
+        }
+        else
+        {
+            settings.maxRunDepth = 5;
+            settings.endgameEmpties = 12;
+            settings.endgameWinLossDrawEmpties = 16;
+            // a hard endgame could take minutes, the usual search plays
+            // the move when these positions are not enough
+            settings.maxEndgameNodes = 2000000;
+            // the threads set by the engine, the board starts the extra
+            // ones only for deep searches
+            settings.searchThreads = Board.searchThreads;
+            settings.useOpeningBook = true;
+        }
+
+        return settings;
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent event)
     {
@@ -30,7 +90,6 @@ public class MenuDifficulty extends Scene {
 
         if (event.getAction() != MotionEvent.ACTION_UP)
         {
-            invalidate();
             return true;
         }
 
@@ -38,40 +97,38 @@ public class MenuDifficulty extends Scene {
 
         if (but_easy.isClicked(down, up))
         {
-            Board.maxRunDepth = 1;
+            setDifficulty(EASY);
             clicked = true;
         }
         else if (but_medium.isClicked(down, up))
         {
-            Board.maxRunDepth = 3;
+            setDifficulty(MEDIUM);
             clicked = true;
         }
         else if (but_hard.isClicked(down, up))
         {
-            Board.maxRunDepth = 5;
+            setDifficulty(HARD);
             clicked = true;
         }
 
         if (clicked)
         {
-            playSound(sound_menu);
+            playSound(Assets.sound_menu);
 
             Main main = (Main)getContext();
-            main.setScene(main.menu_color);
+            main.setScene(main.getMenuColor());
         }
 
-        invalidate();
-
         return true;
     }
 
     @Override
     public void onBackPressed()
     {
-        playSound(sound_menu);
+        playSound(Assets.sound_menu);
 
         Main main = (Main)getContext();
-        main.setScene(main.menu);
+        main.setScene(main.getMenu());
     }
 
 
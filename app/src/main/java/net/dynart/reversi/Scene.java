@@ -1,16 +1,13 @@
 package net.dynart.reversi;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
-import android.graphics.Typeface;
 import android.view.MotionEvent;
 import android.view.View;
-import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Paint;
-import android.media.SoundPool;
 import android.media.AudioManager;
 
 import java.util.ArrayList;
@@ -18,24 +15,12 @@ import java.util.Iterator;
 
 public class Scene extends View {
 
-    // bitmaps
-    private static Bitmap bg;
-    private static Bitmap logo;
-    private static Bitmap dynart_logo;
-    public static Bitmap dynart_splash;
-    private static Bitmap table;
+    // bitmaps, scaled to device pixels
+    private static Bitmap background;
     private static Bitmap message_bg;
-    public static Bitmap white;
-    public static Bitmap white_dot;
-    public static Bitmap white_x;
-    public static Bitmap black;
-    public static Bitmap black_dot;
-    public static Bitmap black_x;
-    public static Bitmap number_bg;
-    public static Bitmap highlight;
+    protected static Atlas atlas;
 
     // painters
-    protected static Paint filter_paint;
     protected static Paint rect_paint;
     protected static Paint text_paint;
 
@@ -48,15 +33,8 @@ public class Scene extends View {
     protected static float pixel_ratio;
 
     // sounds
-    protected static int sound_menu;
-    protected static int sound_move;
-    protected static int sound_end;
-
     protected static boolean sound_on;
 
-    protected static SoundPool sound_pool;
-    protected static AudioManager mgr;
-
     // touch events
     protected Coord down;
     protected Coord up;
@@ -70,8 +48,8 @@ public class Scene extends View {
     protected Button msg_but_ok;
     protected Button msg_but_cancel;
 
-    // fonts
-    protected Typeface typeface;
+    // geometry reused by the drawing, so a frame allocates nothing
+    private final RectF draw_rect = new RectF();
 
     // board
     protected static Board board;
@@ -92,9 +70,6 @@ public class Scene extends View {
         height = 480;
 
 
-        filter_paint = new Paint();
-        filter_paint.setFilterBitmap(true);
-
         rect_paint = new Paint();
 
         text_paint = new Paint();
@@ -103,8 +78,6 @@ public class Scene extends View {
         text_paint.setAntiAlias(true);
 
 
-        sound_pool = new SoundPool(4, AudioManager.STREAM_MUSIC, 100);
-
         sound_on = true;
 
     }
@@ -117,22 +90,108 @@ public class Scene extends View {
         r.right = (r.right + (useOffset ? getOffsetX() : 0)) * pixel_ratio;
     }
 
-    public void drawBitmap(Canvas canvas, Bitmap bmp, RectF r)
+    // converts a coordinate in screen units to pixels
+    protected static int toPixelX(float x)
+    {
+        return Math.round((x + getOffsetX()) * pixel_ratio);
+    }
+
+    protected static int toPixelY(float y)
+    {
+        return Math.round(y * pixel_ratio);
+    }
+
+    // the bitmaps are already scaled, so these are unscaled blits
+    public void drawBitmap(Canvas canvas, Bitmap bmp, float x, float y)
+    {
+        canvas.drawBitmap(bmp, toPixelX(x), toPixelY(y), null);
+    }
+
+    public void drawSprite(Canvas canvas, int sprite, float x, float y)
+    {
+        atlas.draw(canvas, sprite, toPixelX(x), toPixelY(y));
+    }
+
+    // scales a bitmap resource to the specified size in screen units
+    private static Bitmap loadBitmap(Resources resources, int id, float w, float h)
+    {
+        return Atlas.decode(resources, id, Math.round(w * pixel_ratio), Math.round(h * pixel_ratio));
+    }
+
+    // draws a bitmap into the background layer, it isn't needed after that
+    private static void drawLayer(Canvas canvas, Bitmap bmp, float x, float y)
     {
-        drawBitmap(canvas, bmp, r, true);
+        canvas.drawBitmap(bmp, toPixelX(x), toPixelY(y), null);
+        bmp.recycle();
+    }
+
+    // the bitmaps of one screen size, they are built on the loading
+    // thread and then published on the main thread
+    static class Bitmaps
+    {
+        private Bitmap background;
+        private Bitmap message_bg;
+        private Atlas atlas;
+
+        void recycle()
+        {
+            background.recycle();
+            message_bg.recycle();
+            atlas.recycle();
+        }
+    }
+
+    // called by Assets on its loading thread, nothing shared is changed
+    static Bitmaps loadBitmaps(Resources resources)
+    {
+        Bitmaps result = new Bitmaps();
+
+        // the parts that never change are drawn once into one layer
+        result.background = Bitmap.createBitmap(real_width, real_height, Bitmap.Config.ARGB_8888);
+
+        Canvas canvas = new Canvas(result.background);
+        Bitmap bg = Atlas.decode(resources, R.drawable.bg, real_width, real_height);
+        canvas.drawBitmap(bg, 0, 0, null);
+        bg.recycle();
+
+        drawLayer(canvas, loadBitmap(resources, R.drawable.table, 425, 425), 15, 27);
+        drawLayer(canvas, loadBitmap(resources, R.drawable.logo, 181, 43), 456, 19);
+        drawLayer(canvas, loadBitmap(resources, R.drawable.dynart_logo, 125, 37), width - 145, height - 57);
+
+        result.message_bg = loadBitmap(resources, R.drawable.message_bg, 519, 215);
+        result.atlas = new Atlas(resources, pixel_ratio);
+
+        return result;
     }
 
-    public void drawBitmap(Canvas canvas, Bitmap bmp, RectF r, boolean ratio)
+    // called by Assets on the main thread, the bitmaps of the previous
+    // screen size are recycled
+    static void setBitmaps(Bitmaps bitmaps)
     {
-        if (ratio)
+        if (background != null)
         {
-            convertRectF(r, true);
+            background.recycle();
+            message_bg.recycle();
+            atlas.recycle();
         }
 
-        canvas.drawBitmap(
-            bmp, new Rect(0, 0, bmp.getWidth(), bmp.getHeight()), r, filter_paint
-        );
+        background = bitmaps.background;
+        message_bg = bitmaps.message_bg;
+        atlas = bitmaps.atlas;
+    }
+
+    // returns the shared drawing rectangle set to the specified values,
+    // it is only valid until the next call
+    protected RectF getRectF(float left, float top, float right, float bottom)
+    {
+        draw_rect.set(left, top, right, bottom);
+        return draw_rect;
+    }
 
+    protected RectF getRectF(RectF r)
+    {
+        draw_rect.set(r);
+        return draw_rect;
     }
 
     public void drawRect(Canvas canvas, RectF r, boolean transparent, boolean useOffset)
@@ -175,29 +234,14 @@ public class Scene extends View {
     {
         super(context);
 
-        typeface = Typeface.createFromAsset(getContext().getAssets(), "fonts/Enigma__2.TTF");
-        text_paint.setTypeface(typeface);
-
-        if (bg == null) bg = BitmapFactory.decodeResource(getResources(), R.drawable.bg);
-        if (logo == null) logo = BitmapFactory.decodeResource(getResources(), R.drawable.logo);
-        if (dynart_logo == null) dynart_logo = BitmapFactory.decodeResource(getResources(), R.drawable.dynart_logo);
-        if (dynart_splash == null) dynart_splash = BitmapFactory.decodeResource(getResources(), R.drawable.dynart_splash);
-        if (table == null) table = BitmapFactory.decodeResource(getResources(), R.drawable.table);
-        if (message_bg == null) message_bg = BitmapFactory.decodeResource(getResources(), R.drawable.message_bg);
-        if (white == null) white = BitmapFactory.decodeResource(getResources(), R.drawable.white);
-        if (white_dot == null) white_dot = BitmapFactory.decodeResource(getResources(), R.drawable.white_dot);
-        if (white_x == null) white_x = BitmapFactory.decodeResource(getResources(), R.drawable.white_x);
-        if (black == null) black = BitmapFactory.decodeResource(getResources(), R.drawable.black);
-        if (black_dot == null) black_dot = BitmapFactory.decodeResource(getResources(), R.drawable.black_dot);
-        if (black_x == null) black_x = BitmapFactory.decodeResource(getResources(), R.drawable.black_x);
-        if (number_bg == null) number_bg = BitmapFactory.decodeResource(getResources(), R.drawable.number_bg);
-        if (highlight == null) highlight = BitmapFactory.decodeResource(getResources(), R.drawable.highlight);
-
-        sound_menu = sound_pool.load(getContext(), R.raw.menu, 1);
-        sound_move = sound_pool.load(getContext(), R.raw.move, 1);
-        sound_end  = sound_pool.load(getContext(), R.raw.end, 1);
-
-        mgr = (AudioManager)getContext().getSystemService(Context.AUDIO_SERVICE);
+        // the font and the bitmaps are shared by all scenes, Main creates
+        // the scenes after they are published
+        if (!Assets.isMenuReady())
+        {
+            throw new IllegalStateException("The assets of the menu aren't loaded");
+        }
+
+        text_paint.setTypeface(Assets.typeface);
 
         down = new Coord(0, 0);
         up = new Coord(0, 0);
@@ -221,42 +265,48 @@ public class Scene extends View {
         buttons.add(msg_but_ok);
         buttons.add(msg_but_cancel);
 
-        board = new Board();
-        board.setStartPosition();
+        if (board == null)
+        {
+            // the shown board never searches, the engine has its own, so
+            // its transposition table gets the smallest size: one entry
+            board = new Board(0);
+            board.setStartPosition();
+        }
 
     }
 
     public static void playSound(int sound)
     {
-        if (!sound_on) return;
+        // the sounds are loaded after the menu is shown
+        if (!sound_on || !Assets.isReady()) return;
 
-        float streamVolumeCurrent = mgr.getStreamVolume(AudioManager.STREAM_MUSIC);
-        float streamVolumeMax = mgr.getStreamMaxVolume(AudioManager.STREAM_MUSIC);
+        float streamVolumeCurrent = Assets.mgr.getStreamVolume(AudioManager.STREAM_MUSIC);
+        float streamVolumeMax = Assets.mgr.getStreamMaxVolume(AudioManager.STREAM_MUSIC);
         float volume = streamVolumeCurrent / streamVolumeMax;
 
-        sound_pool.play(sound, volume, volume, 1, 0, 1f);
+        Assets.sound_pool.play(sound, volume, volume, 1, 0, 1f);
     }
 
-    public float getOffsetX() {
+    public static float getOffsetX() {
         return (full_width - width) / 2;
     }
 
     @Override
     public void onDraw(Canvas canvas)
     {
-        drawBitmap(canvas, bg, new RectF(0, 0, real_width, real_height), false);
-        drawBitmap(canvas, table, new RectF(15, 27, 440, 452));
-        drawBitmap(canvas, logo, new RectF(456, 19, 637, 62));
-        drawBitmap(canvas, dynart_logo, new RectF(width - 145, height - 57, width - 20, height - 20));
+        canvas.drawBitmap(background, 0, 0, null);
 
         drawBoard(canvas);
 
         buttonsDrawLayer(canvas, 0);
+
+        // whichever scene is shown first
+        Startup.firstFrame();
     }
 
-    protected RectF getDiscRectF(int i, int j)
+    protected void drawDisc(Canvas canvas, int sprite, int i, int j)
     {
-        return new RectF(16 + i*53, 28 + j*53, 16 + i*53 + 53, 28 + j*53 + 53);
+        drawSprite(canvas, sprite, 16 + i*53, 28 + j*53);
     }
 
     public void drawBoard(Canvas canvas)
@@ -271,7 +321,7 @@ public class Scene extends View {
 
                 if (piece == Board.PIECE_EMPTY) continue;
 
-                drawBitmap(canvas, piece == Board.PIECE_LIGHT ? Scene.white : Scene.black, getDiscRectF(i, j));
+                drawDisc(canvas, piece == Board.PIECE_LIGHT ? Atlas.WHITE : Atlas.BLACK, i, j);
             }
         }
     }
@@ -281,12 +331,16 @@ public class Scene extends View {
         msg_show = true;
         msg_text = text;
         buttonsSetEnabled(false, true);
+
+        invalidate();
     }
 
     protected void hideMsg()
     {
         msg_show = false;
         buttonsSetEnabled(true, false);
+
+        invalidate();
     }
 
     protected boolean drawMsg(Canvas canvas)
@@ -295,8 +349,8 @@ public class Scene extends View {
 
         float x = (width-519) / 2;
 
-        drawRect(canvas, new RectF(0, 0, full_width, 480), true, false);
-        drawBitmap(canvas, message_bg, new RectF(x, 132, x+519, 347));
+        drawRect(canvas, getRectF(0, 0, full_width, 480), true, false);
+        drawBitmap(canvas, message_bg, x, 132);
         drawText(canvas, msg_text, x + 519/2, 170, 45, 0);
         drawText(canvas, msg_text, x + 519/2, 167, 45, 255);
 
@@ -307,11 +361,11 @@ public class Scene extends View {
 
     private void buttonsDrawLayer(Canvas canvas, int layer)
     {
+        // indexed loop, an iterator would be allocated on every frame
         Button button;
-        Iterator<Button> it = buttons.iterator();
-        while (it.hasNext())
+        for (int i = 0; i < buttons.size(); i++)
         {
-            button = it.next();
+            button = buttons.get(i);
 
             if (button.getLayer() == layer)
             {
@@ -340,21 +394,39 @@ public class Scene extends View {
 
     }
 
+    // the whole view is redrawn, but only when a button changes its look
     private void buttonsTransparent()
     {
+        Button button;
         Iterator<Button> it = buttons.iterator();
         while (it.hasNext())
         {
-            it.next().transparent();
+            button = it.next();
+
+            if (!button.isTransparent())
+            {
+                button.transparent();
+                invalidate();
+            }
         }
     }
 
     private void buttonsSetTransparent()
     {
+        Button button;
+        boolean transp;
         Iterator<Button> it = buttons.iterator();
         while (it.hasNext())
         {
-            it.next().setTransparent(down);
+            button = it.next();
+
+            transp = button.isTransparent();
+            button.setTransparent(down);
+
+            if (button.isTransparent() != transp)
+            {
+                invalidate();
+            }
         }
     }
 
@@ -0,0 +1,55 @@
+package net.dynart.reversi;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Logs how long the startup phases take, so the time to the first frame
+ * can be followed between versions.
+ */
+public class Startup {
+
+    private static final String TAG = "Startup";
+
+    private static long create_time;
+    private static boolean first_frame;
+
+    public static long now()
+    {
+        return SystemClock.uptimeMillis();
+    }
+
+    /**
+     * Called when the activity is created, the first frame is measured
+     * from here
+     */
+    public static synchronized void begin()
+    {
+        create_time = now();
+        first_frame = false;
+    }
+
+    /**
+     * Logs a phase started at the specified time
+     */
+    public static void phase(String name, long start)
+    {
+        long time = now();
+
+        Log.i(TAG, name + ": " + (time - start) + " ms, " + (time - Process.getStartUptimeMillis()) + " ms after process start");
+    }
+
+    /**
+     * Records the first frame drawn after the activity is created, later
+     * calls are ignored
+     */
+    public static synchronized void firstFrame()
+    {
+        if (first_frame) return;
+
+        first_frame = true;
+        phase("first frame", create_time);
+    }
+
+}
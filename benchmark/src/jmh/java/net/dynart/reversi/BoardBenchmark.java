@@ -0,0 +1,70 @@
+package net.dynart.reversi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the steps of the calculation: move generation, making
+ * and taking back moves and evaluation. One operation is one position of
+ * the {@link Corpus}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+    @Param({Corpus.OPENING, Corpus.MIDDLE_GAME, Corpus.ENDGAME})
+    public String phase;
+
+    private Board[] boards;
+
+    @Setup
+    public void setUp() throws IOException {
+        Corpus.loadEvaluation();
+        boards = Corpus.createBoards(phase);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void findMoves(Blackhole blackhole) {
+        for (Board board: boards) {
+            blackhole.consume(board.findMoves());
+        }
+    }
+
+    /**
+     * One operation makes and takes back all moves of a position
+     */
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void makeAndUndoMoves(Blackhole blackhole) {
+        for (Board board: boards) {
+            blackhole.consume(board.makeAndUndoMoves());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void getPosValue(Blackhole blackhole) {
+        for (Board board: boards) {
+            blackhole.consume(board.getPosValue());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package net.dynart.reversi;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fixed positions of the benchmarks. They come from games of the computer
+ * against itself (depth 2 after 6 random moves), 4 of every game phase
+ * with either player to move
+ */
+final class Corpus {
+
+    static final String OPENING = "opening";
+
+    static final String MIDDLE_GAME = "middle";
+
+    static final String ENDGAME = "endgame";
+
+    /**
+     * Count of positions of every game phase
+     */
+    static final int SIZE = 4;
+
+    private static final Position[] OPENING_POSITIONS = {
+            new Position(0x0000002010203020L, 0x0000001C081C001CL, false),
+            new Position(0x000000084C283800L, 0x001C081010100400L, true),
+            new Position(0x00004048407E0000L, 0x0000801038002000L, false),
+            new Position(0x2020380800020000L, 0x000000341E140400L, true)};
+
+    private static final Position[] MIDDLE_GAME_POSITIONS = {
+            new Position(0x040CF4E4FD400000L, 0x30300A1A02030000L, false),
+            new Position(0x1C0404CC0EC10000L, 0x00001331F0342438L, true),
+            new Position(0x3C10F31030302000L, 0x000C0CEECC400000L, false),
+            new Position(0x00000F0C0F072410L, 0x1010303330781804L, true)};
+
+    private static final Position[] ENDGAME_POSITIONS = {
+            new Position(0x383CCEFF0A000804L, 0x04003000F4FF3438L, false),
+            new Position(0x3C2CD45474102024L, 0x00102BAB8BEF1818L, true),
+            new Position(0x3814EEEA90800000L, 0x042811156F7F1C1CL, false),
+            new Position(0x011E1E071E1E18F0L, 0x3E204078E060E00CL, true)};
+
+    private Corpus() {
+    }
+
+    /**
+     * Returns the positions of the specified game phase: 47-48 empty
+     * cells in the opening, 31-32 in the middle game and 17-18 in the
+     * endgame
+     */
+    static Position[] get(String phase) {
+        if (OPENING.equals(phase)) {
+            return OPENING_POSITIONS;
+        } else if (MIDDLE_GAME.equals(phase)) {
+            return MIDDLE_GAME_POSITIONS;
+        } else if (ENDGAME.equals(phase)) {
+            return ENDGAME_POSITIONS;
+        }
+        throw new IllegalArgumentException("Unknown game phase: " + phase);
+    }
+
+    /**
+     * Returns boards set to the positions of the specified game phase
+     */
+    static Board[] createBoards(String phase) {
+        Position[] positions = get(phase);
+        Board[] result = new Board[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            result[i] = new Board();
+            result[i].setPosition(positions[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Loads the evaluation weights of the application, so the benchmarks
+     * measure the evaluation which is played with
+     */
+    static void loadEvaluation() throws IOException {
+        if (PatternEvaluation.isLoaded()) {
+            return;
+        }
+
+        InputStream in = Corpus.class.getResourceAsStream("/eval_weights.gz");
+        if (in == null) {
+            throw new IOException("Evaluation weights not found");
+        }
+        try {
+            PatternEvaluation.load(in);
+        } finally {
+            in.close();
+        }
+    }
+}
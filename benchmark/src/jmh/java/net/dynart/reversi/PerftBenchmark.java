@@ -0,0 +1,71 @@
+package net.dynart.reversi;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link Board#perft(int)}, the move generation and the
+ * making and taking back of moves without any evaluation. One operation
+ * is the perft of one position of the {@link Corpus}, the "nodes" result
+ * is the count of positions a second
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PerftBenchmark {
+
+    @Param({"5"})
+    public int plies;
+
+    @Param({Corpus.OPENING, Corpus.MIDDLE_GAME, Corpus.ENDGAME})
+    public String phase;
+
+    private Board[] boards;
+
+    /**
+     * Count of counted positions, reported per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        boards = Corpus.createBoards(phase);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public long perft(Nodes nodes) {
+        long result = 0;
+        for (Board board: boards) {
+            result += board.perft(plies);
+        }
+        nodes.nodes += result;
+        return result;
+    }
+}
@@ -0,0 +1,99 @@
+package net.dynart.reversi;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link Board#run()} with a fixed depth on one thread. One
+ * operation is the calculation of one position of the {@link Corpus}
+ * with an empty transposition table. The "nodes" result is the time per
+ * searched position.
+ * <p>
+ * The endgame solver is switched off, so the depth is used in every game
+ * phase
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8"})
+    public int depth;
+
+    @Param({Corpus.OPENING, Corpus.MIDDLE_GAME, Corpus.ENDGAME})
+    public String phase;
+
+    private Board[] boards;
+
+    private Position[] positions;
+
+    /**
+     * Count of searched positions, reported per time
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        Corpus.loadEvaluation();
+
+        Board.maxRunDepth = depth;
+        Board.maxRunTime = 0;
+        Board.maxRunNodes = 0;
+        Board.endgameEmpties = 0;
+        Board.endgameWinLossDrawEmpties = 0;
+        Board.searchThreads = 1;
+
+        boards = Corpus.createBoards(phase);
+        positions = Corpus.get(phase);
+    }
+
+    /**
+     * Every calculation starts without the results of the previous one
+     */
+    @Setup(Level.Invocation)
+    public void clearTranspositionTables() {
+        for (Board board: boards) {
+            board.getTranspositionTable().clear();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void run(Nodes nodes, Blackhole blackhole) {
+        for (int i = 0; i < boards.length; i++) {
+            Board board = boards[i];
+            board.setPosition(positions[i]);
+            SearchResult result = board.search();
+            blackhole.consume(result.getMove());
+            nodes.nodes += result.getNodes();
+        }
+    }
+}
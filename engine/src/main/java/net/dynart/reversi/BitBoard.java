@@ -0,0 +1,98 @@
+package net.dynart.reversi;
+
+/**
+ * Bitboard helpers. A position is stored as two 64-bit masks, one for the
+ * player to move and one for the opponent. Bit {@code y * 8 + x} is the
+ * cell with board coordinates (x, y)
+ */
+final class BitBoard {
+
+    /**
+     * Every cell except the A and H columns. Used to stop horizontal and
+     * diagonal shifts from wrapping around into the next row
+     */
+    static final long NOT_EDGE_COLUMNS = 0x7E7E7E7E7E7E7E7EL;
+
+    /**
+     * Shift amounts of the four line directions, each one is used both
+     * to the left and to the right
+     */
+    private static final int[] SHIFTS = {1, 8, 7, 9};
+
+    /**
+     * Opponent masks that belong to {@link #SHIFTS}
+     */
+    private static final long[] MASKS = {NOT_EDGE_COLUMNS, -1L, NOT_EDGE_COLUMNS, NOT_EDGE_COLUMNS};
+
+    private BitBoard() {
+    }
+
+    /**
+     * Returns the mask of legal moves of the player
+     */
+    static long getMoves(long player, long opponent) {
+        long moves = 0;
+        for (int i = 0; i < SHIFTS.length; i++) {
+            int shift = SHIFTS[i];
+            long mask = opponent & MASKS[i];
+
+            long t = mask & (player << shift);
+            t |= mask & (t << shift);
+            t |= mask & (t << shift);
+            t |= mask & (t << shift);
+            t |= mask & (t << shift);
+            t |= mask & (t << shift);
+            moves |= t << shift;
+
+            t = mask & (player >>> shift);
+            t |= mask & (t >>> shift);
+            t |= mask & (t >>> shift);
+            t |= mask & (t >>> shift);
+            t |= mask & (t >>> shift);
+            t |= mask & (t >>> shift);
+            moves |= t >>> shift;
+        }
+        return moves & ~(player | opponent);
+    }
+
+    /**
+     * Returns the mask of opponent pieces that are rotated when the
+     * player puts a piece on the specified cell
+     */
+    static long getFlips(int square, long player, long opponent) {
+        long bit = 1L << square;
+        long inner = opponent & NOT_EDGE_COLUMNS;
+        return lineLeft(bit, player, inner, 1) | lineRight(bit, player, inner, 1) |
+                lineLeft(bit, player, opponent, 8) | lineRight(bit, player, opponent, 8) |
+                lineLeft(bit, player, inner, 7) | lineRight(bit, player, inner, 7) |
+                lineLeft(bit, player, inner, 9) | lineRight(bit, player, inner, 9);
+    }
+
+    /**
+     * Returns the opponent pieces enclosed from the specified cell
+     * towards the higher bit indexes
+     */
+    private static long lineLeft(long bit, long player, long mask, int shift) {
+        long line = 0;
+        long pos = bit << shift;
+        while ((pos & mask) != 0) {
+            line |= pos;
+            pos <<= shift;
+        }
+        return (pos & player) != 0 ? line : 0;
+    }
+
+    /**
+     * Returns the opponent pieces enclosed from the specified cell
+     * towards the lower bit indexes
+     */
+    private static long lineRight(long bit, long player, long mask, int shift) {
+        long line = 0;
+        long pos = bit >>> shift;
+        while ((pos & mask) != 0) {
+            line |= pos;
+            pos >>>= shift;
+        }
+        return (pos & player) != 0 ? line : 0;
+    }
+}
@@ -0,0 +1,1880 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER
+ * Copyright  2008, 2010 Oracle and/or its affiliates.  All rights reserved.
+ * Use is subject to license terms.
+ *
+ * This file is available and licensed under the following license:
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *
+ *   * Neither the name of Oracle Corporation nor the names of its contributors
+ *     may be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.dynart.reversi;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @author Pavel Porvatov
+ */
+public class Board {
+    public static enum GameResult {
+        UNKNOWN,
+        DRAW,
+        DARK_WINS,
+        LIGHT_WINS
+    }
+
+    /**
+     * Cell value for an empty cell
+     */
+    public static final int PIECE_EMPTY = 0;
+
+    /**
+     * Cell value for a dark piece
+     */
+    public static final int PIECE_DARK = 1;
+
+    /**
+     * Cell value for a light piece
+     */
+    public static final int PIECE_LIGHT = -1;
+
+    /*
+     * Max result value for the intGetPosValue() method
+     */
+    private static final int intMaxPosValue = 10000;
+
+    /**
+     * Lose result value for the intGetPosValue() method
+     */
+    private static final int intLoseValue = 5000;
+
+    /**
+     * Max possible depth for computer calculations. Every move puts a
+     * piece, so a calculation never goes deeper than the empty cells
+     */
+    private static final int intMaxDepth = 62;
+
+    /**
+     * Masks of corner cells and corner neighbours cells
+     *
+     * @see #player
+     */
+    private static final long[] intCorners = {
+            coordToMask(0, 0),
+            coordToMask(0, 1) | coordToMask(1, 1) | coordToMask(1, 0),
+            coordToMask(0, 7),
+            coordToMask(0, 6) | coordToMask(1, 6) | coordToMask(1, 7),
+            coordToMask(7, 0),
+            coordToMask(6, 0) | coordToMask(6, 1) | coordToMask(7, 1),
+            coordToMask(7, 7),
+            coordToMask(6, 7) | coordToMask(6, 6) | coordToMask(7, 6)};
+
+    /**
+     * Move ordering priority of cells: corners first, then the other edge
+     * cells and the center, the cells next to corners last
+     *
+     * @see #intOrderMoves(BoardState, int)
+     */
+    private static final int[] squareOrder = {
+            9, 1, 8, 6, 6, 8, 1, 9,
+            1, 0, 3, 4, 4, 3, 0, 1,
+            8, 3, 7, 5, 5, 7, 3, 8,
+            6, 4, 5, 5, 5, 5, 4, 6,
+            6, 4, 5, 5, 5, 5, 4, 6,
+            8, 3, 7, 5, 5, 7, 3, 8,
+            1, 0, 3, 4, 4, 3, 0, 1,
+            9, 1, 8, 6, 6, 8, 1, 9};
+
+    /**
+     * Sort key of the transposition table move, it is tried first
+     */
+    private static final int intHashMoveOrder = 1 << 30;
+
+    /**
+     * Sort key of the first killer move, the second one gets one less
+     */
+    private static final int intKillerMoveOrder = 1 << 29;
+
+    /**
+     * Weight of {@link #squareOrder} against the history table
+     */
+    private static final int intSquareOrderWeight = 1 << 10;
+
+    /**
+     * Default memory size of the transposition table in bytes
+     */
+    public static final int DEFAULT_TRANSPOSITION_TABLE_SIZE = 1 << 20;
+
+    /**
+     * Used for random number generation. Compatible with mobile platform
+     */
+    private static final Random RANDOM = new Random();
+
+    /**
+     * Zobrist keys of dark pieces, one per cell
+     *
+     * @see #hash
+     */
+    private static final long[] zobristDark = new long[64];
+
+    /**
+     * Zobrist keys of light pieces, one per cell
+     *
+     * @see #hash
+     */
+    private static final long[] zobristLight = new long[64];
+
+    /**
+     * Zobrist key of the dark player to move
+     *
+     * @see #hash
+     */
+    private static final long zobristDarkMove;
+
+    static {
+        // Fixed seed, so keys are the same in every run
+        Random random = new Random(0x5EED);
+        for (int i = 0; i < 64; i++) {
+            zobristDark[i] = random.nextLong();
+            zobristLight[i] = random.nextLong();
+        }
+        zobristDarkMove = random.nextLong();
+    }
+
+    /**
+     * Pieces of the player to move, one bit per cell. The
+     * {@link #indexToCoord(int)} and {@link #coordToIndex(int, int)}
+     * convert board coordinates into bit indexes and vice versa
+     *
+     * @see BitBoard
+     */
+    private long player;
+
+    /**
+     * Pieces of the opponent of the player to move
+     *
+     * @see #player
+     */
+    private long opponent;
+
+    /**
+     * Value of current piece
+     *
+     * @see #PIECE_DARK
+     * @see #PIECE_LIGHT
+     */
+    private int movePiece;
+
+    /**
+     * Zobrist key of the current position. It is updated in
+     * {@link #intMakeMove(MoveInfo)} and {@link #intPass()}
+     *
+     * @see #transpositionTable
+     */
+    private long hash;
+
+    /**
+     * Indexes of the {@link PatternEvaluation} patterns in the current
+     * position. They are updated in {@link #intMakeMove(MoveInfo)} and
+     * {@link #intUndo(MoveInfo)}
+     */
+    private final int[] patternIndexes = new int[PatternEvaluation.INSTANCES.length];
+
+    /**
+     * Count of dark pieces on the board
+     */
+    private int intDarkPiecesCount;
+
+    /**
+     * Count of light pieces on the board
+     */
+    private int intLightPiecesCount;
+
+    /**
+     * Current depth calcaulation
+     *
+     * @see #run()
+     */
+    private int depth;
+
+    /**
+     * Maximum depth of current calcaulation. It influences on computer strength
+     *
+     * @see #run()
+     */
+    public static int maxRunDepth = 5;
+
+    /**
+     * Time limit of a calculation in milliseconds. When it is set the
+     * computer deepens the calculation step by step until the time is up
+     * and plays the best move of the last finished step. 0 means fixed
+     * {@link #maxRunDepth}
+     *
+     * @see #run()
+     */
+    public static long maxRunTime = 0;
+
+    /**
+     * Limit of searched positions for a calculation, it works the same way
+     * as {@link #maxRunTime}. 0 means no limit
+     *
+     * @see #run()
+     */
+    public static long maxRunNodes = 0;
+
+    /**
+     * Count of empty cells from which the computer calculates the exact
+     * end of the game instead of evaluating positions. 0 turns it off
+     *
+     * @see EndgameSolver
+     */
+    public static int endgameEmpties = 12;
+
+    /**
+     * Count of empty cells from which the computer calculates whether the
+     * game is won, lost or drawn, which is much faster than the exact
+     * result. A winning or drawing move is played, in a lost position the
+     * usual calculation goes on. 0 turns it off
+     *
+     * @see #endgameEmpties
+     */
+    public static int endgameWinLossDrawEmpties = 16;
+
+    /**
+     * Limit of searched positions for the endgame calculation. When it is
+     * reached the usual calculation finds the move. 0 means no limit
+     * other than {@link #maxRunTime} and {@link #maxRunNodes}
+     *
+     * @see #endgameEmpties
+     * @see #endgameWinLossDrawEmpties
+     */
+    public static long maxEndgameNodes = 0;
+
+    /**
+     * Count of threads of a calculation. The extra threads search the same
+     * position with their own boards and fill the shared transposition
+     * table (Lazy SMP), so the main thread finds more results there.
+     * The endgame calculation always runs in one thread, and so does a
+     * calculation of a fixed depth below {@link #HELPERS_MIN_DEPTH}
+     *
+     * @see #run()
+     */
+    public static int searchThreads = 1;
+
+    /**
+     * Smallest fixed depth of a calculation which the extra threads of
+     * {@link #searchThreads} take part in. Shallower calculations take a
+     * few milliseconds, the helpers would only slow them down. A
+     * calculation limited by time or nodes deepens step by step, the
+     * helpers always take part in it
+     */
+    public static final int HELPERS_MIN_DEPTH = 8;
+
+    /**
+     * Determines whether the computer plays moves of the opening book
+     *
+     * @see #setOpeningBook(OpeningBook)
+     */
+    public static boolean useOpeningBook = true;
+
+    /**
+     * Settings of this board, null if it uses the static settings
+     *
+     * @see #setSettings(SearchSettings)
+     */
+    private SearchSettings settings;
+
+    /**
+     * Determines whether the running calculation evaluates positions by
+     * {@link PatternEvaluation}
+     *
+     * @see SearchSettings#usePatternEvaluation
+     */
+    private boolean patternEvaluation = true;
+
+    /**
+     * Maximum depth of the running calculation step
+     *
+     * @see #maxRunDepth
+     */
+    private int runDepth;
+
+    /**
+     * Count of positions searched by the running calculation
+     */
+    private long runNodes;
+
+    /**
+     * {@link System#nanoTime()} value when the running calculation stops,
+     * 0 if there is no time limit
+     */
+    private long runDeadline;
+
+    /**
+     * Limit of searched positions of the running calculation step,
+     * 0 if there is no limit
+     *
+     * @see #maxRunNodes
+     */
+    private long runNodeLimit;
+
+    /**
+     * Set when the running calculation step ran out of time or positions
+     * and its result must be thrown away
+     */
+    private boolean runStopped;
+
+    /**
+     * Set by {@link #stop()} from another thread
+     */
+    private volatile boolean stopRequested;
+
+    /**
+     * Two moves per depth which caused the latest beta cutoffs
+     *
+     * @see #intOrderMoves(BoardState, int)
+     */
+    private final int[][] killerMoves = new int[intMaxDepth][2];
+
+    /**
+     * Success of moves in beta cutoffs, per player and cell. It is halved
+     * before every calculation, so old values fade out
+     *
+     * @see #intOrderMoves(BoardState, int)
+     */
+    private final int[][] historyTable = new int[2][64];
+
+    /**
+     * Count of beta cutoffs in the last calculation
+     */
+    private long cutoffCount;
+
+    /**
+     * Count of beta cutoffs caused by the first move
+     *
+     * @see #cutoffCount
+     */
+    private long firstMoveCutoffCount;
+
+    /**
+     * Count of positions evaluated at the end of the depth or of the game
+     * in the last calculation
+     */
+    private long leafCount;
+
+    /**
+     * Count of positions evaluated at the end of the depth in the last
+     * calculation. Unlike the other positions they are not counted by
+     * {@link #intCheckStop()}
+     *
+     * @see #leafCount
+     */
+    private long horizonLeafCount;
+
+    /**
+     * Count of lookups in the transposition table in the last calculation
+     */
+    private long transpositionProbeCount;
+
+    /**
+     * Count of positions found in the transposition table in the last
+     * calculation
+     */
+    private long transpositionHitCount;
+
+    /**
+     * Count of lookups in the last calculation which found another
+     * position in the slot
+     */
+    private long transpositionCollisionCount;
+
+    /**
+     * Value of the best moves of the last completed calculation step for
+     * the player to move
+     *
+     * @see #intRunDepth(int, int)
+     * @see #intRunEndgame(boolean, long)
+     */
+    private int runBestValue;
+
+    /**
+     * States of board when computer calculates the best move.
+     * We prepares all structures before computer calculations to avoid
+     * performance problems.
+     *
+     * @see #run()
+     */
+    private final BoardState[] boardStates = new BoardState[intMaxDepth];
+
+    /**
+     * Random noise for the {@link #intGetPosValue(boolean)} method. Helper
+     * boards share it, so the values in the transposition table agree
+     */
+    private final int[] posValueRandom;
+
+    /**
+     * Results of previous calculations. It is kept between moves and
+     * cleared when a new game starts. Helper boards share it
+     */
+    private final TranspositionTable transpositionTable;
+
+    /**
+     * Book of opening moves, null if there is none
+     */
+    private OpeningBook openingBook;
+
+    /**
+     * Boards of the extra calculation threads. They are created when a
+     * calculation needs more of them than before and reused by every
+     * calculation, the first {@link #searchThreads} - 1 take part
+     */
+    private Board[] helpers = new Board[0];
+
+    /**
+     * Threads of the helpers, created with the first helper. The threads
+     * are reused by the calculations and end after a minute without them
+     *
+     * @see #intStartHelpers(int, int)
+     */
+    private ExecutorService helperExecutor;
+
+    /**
+     * Number of the helper board, 0 for the main board
+     *
+     * @see #helpers
+     */
+    private final int helperIndex;
+
+    /**
+     * Solver of the last {@link #endgameEmpties} moves
+     */
+    private final EndgameSolver endgameSolver = new EndgameSolver();
+
+    public Board() {
+        this(DEFAULT_TRANSPOSITION_TABLE_SIZE);
+    }
+
+    /**
+     * Creates a board whose transposition table takes at most the
+     * specified count of bytes
+     */
+    public Board(int transpositionTableSize) {
+        this(new TranspositionTable(transpositionTableSize), new int[100], 0);
+        setStartPosition();
+    }
+
+    /**
+     * Creates a board which shares the transposition table and the noise
+     * of the position values with other boards
+     *
+     * @see #helpers
+     */
+    private Board(TranspositionTable transpositionTable, int[] posValueRandom, int helperIndex) {
+        for (int i = 0; i < boardStates.length; i++) {
+            boardStates[i] = new BoardState();
+        }
+        this.transpositionTable = transpositionTable;
+        this.posValueRandom = posValueRandom;
+        this.helperIndex = helperIndex;
+    }
+
+    /**
+     * Returns a piece on the specified board position
+     *
+     * @see #PIECE_EMPTY
+     * @see #PIECE_DARK
+     * @see #PIECE_LIGHT
+     */
+    public int getPiece(int x, int y) {
+        if (x < 0 || x > 7 || y < 0 || y > 7) {
+            return PIECE_EMPTY;
+        }
+        long mask = coordToMask(x, y);
+        if ((player & mask) != 0) {
+            return movePiece;
+        }
+        if ((opponent & mask) != 0) {
+            return -movePiece;
+        }
+        return PIECE_EMPTY;
+    }
+
+    /**
+     * Prepares start position on the board
+     */
+    public void setStartPosition() {
+        player = coordToMask(3, 3) | coordToMask(4, 4);
+        opponent = coordToMask(3, 4) | coordToMask(4, 3);
+        movePiece = PIECE_LIGHT;
+        hash = intComputeHash();
+
+        // Prepare posValueRandom array. Values stored in the transposition
+        // table depend on it, so it is changed only together with the table
+        for (int i = 0; i < posValueRandom.length; i++) {
+            posValueRandom[i] = (int) (RANDOM.nextDouble() * 3) - 2;
+        }
+        transpositionTable.clear();
+
+        prepareMoves();
+    }
+
+    /**
+     * Returns a copy of the position, it can be used from any thread
+     */
+    public Position getPosition() {
+        return isDark() ? new Position(player, opponent, true) :
+                new Position(opponent, player, false);
+    }
+
+    /**
+     * Sets the specified position. Results of previous calculations are
+     * kept, so it is cheap to follow a game move by move
+     */
+    public void setPosition(Position position) {
+        boolean dark = position.isDarkToMove();
+        player = dark ? position.getDark() : position.getLight();
+        opponent = dark ? position.getLight() : position.getDark();
+        movePiece = dark ? PIECE_DARK : PIECE_LIGHT;
+        hash = intComputeHash();
+        prepareMoves();
+    }
+
+    /**
+     * Stops the running calculation, {@link #run()} returns null then.
+     * It can be called from any thread. The request stays until the
+     * position changes
+     */
+    public void stop() {
+        stopRequested = true;
+        endgameSolver.setStopRequested(true);
+    }
+
+    /**
+     * Sets the book of opening moves. Its moves are played without
+     * calculation while {@link #useOpeningBook} is set
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * Sets the settings of the calculations of this board, or null to use
+     * the static settings ({@link #maxRunDepth} and the others). The
+     * settings are read when a calculation starts
+     */
+    public void setSettings(SearchSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Returns the transposition table of the computer calculations. The
+     * counters of {@link SearchResult} show how well its size fits
+     */
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    /**
+     * Determines piece color of current move
+     */
+    public boolean isDark() {
+        return movePiece == PIECE_DARK;
+    }
+
+    /**
+     * Returns state of the game
+     */
+    public GameResult getGameResult() {
+        if (boardStates[0].movesCount > 0) {
+            return GameResult.UNKNOWN;
+        }
+
+        if (intDarkPiecesCount == intLightPiecesCount) {
+            return GameResult.DRAW;
+        }
+
+        return intDarkPiecesCount > intLightPiecesCount ?
+                GameResult.DARK_WINS : GameResult.LIGHT_WINS;
+    }
+
+    /**
+     * Returns possible moves in the current position
+     */
+    public Coord[] getMoves() {
+        BoardState boardState = boardStates[0];
+        Coord[] result = new Coord[boardState.movesCount];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = indexToCoord(boardState.moves[i].move);
+        }
+        return result;
+    }
+
+    /**
+     * Stores possible moves in the current position into the specified
+     * coordinates and returns their count. Nothing is allocated, so it
+     * can be called on every frame. The array must hold 64 coordinates
+     *
+     * @see #getMoves()
+     */
+    public int getMoves(Coord[] moves) {
+        BoardState boardState = boardStates[0];
+        for (int i = 0; i < boardState.movesCount; i++) {
+            int move = boardState.moves[i].move;
+            moves[i].x = move & 7;
+            moves[i].y = move >> 3;
+        }
+        return boardState.movesCount;
+    }
+
+    /**
+     * Perform specified move
+     */
+    public boolean makeMove(Coord move) {
+        BoardState boardState = boardStates[0];
+        int index = coordToIndex(move.x, move.y);
+        for (int i = 0; i < boardState.movesCount; i++) {
+            MoveInfo moveInfo = boardState.moves[i];
+
+            if (moveInfo.move == index) {
+                intMakeMove(moveInfo);
+
+                prepareMoves();
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns count of dark pieces on the board
+     */
+    public int getDarkPiecesCount() {
+        return intDarkPiecesCount;
+    }
+
+    /**
+     * Returns count of light pieces on the board
+     */
+    public int getLightPiecesCount() {
+        return intLightPiecesCount;
+    }
+
+    /**
+     * Finds the moves of the current position the way the calculation
+     * does and returns their count. It is meant for benchmarks
+     */
+    int findMoves() {
+        intFindMoves();
+        return boardStates[depth].movesCount;
+    }
+
+    /**
+     * Makes and takes back every move of the current position the way the
+     * calculation does and returns the sum of the keys of the positions
+     * after the moves. It is meant for benchmarks
+     */
+    long makeAndUndoMoves() {
+        BoardState boardState = boardStates[depth];
+        long result = 0;
+        for (int i = 0; i < boardState.movesCount; i++) {
+            intMakeMove(boardState.moves[i]);
+            result += hash;
+            intUndo(boardState.moves[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns value of the current position for the dark player the way
+     * the calculation evaluates it. It is meant for benchmarks
+     */
+    int getPosValue() {
+        return intGetPosValue(false);
+    }
+
+    /**
+     * Counts the positions the specified count of plies after the current
+     * position (perft), every move sequence once. It walks the tree with
+     * the move generation of the calculation, so the counts prove it
+     * right. A pass is a ply of its own and a finished game ends its
+     * sequence early. The current position is the one after its forced
+     * pass
+     *
+     * @see #perftDivide(int)
+     */
+    long perft(int plies) {
+        long result = 0;
+        for (long count: perftDivide(plies)) {
+            result += count;
+        }
+        return result;
+    }
+
+    /**
+     * Counts the positions like {@link #perft(int)}, separately for every
+     * move of the current position. The result is indexed by cell
+     * (y * 8 + x), a finished game counts as one position without a move
+     */
+    long[] perftDivide(int plies) {
+        if (plies < 0 || plies >= intMaxDepth) {
+            throw new IllegalArgumentException("Plies must be between 0 and " + (intMaxDepth - 1));
+        }
+
+        long[] result = new long[64];
+        BoardState boardState = boardStates[0];
+        if (plies == 0 || boardState.movesCount == 0) {
+            result[0] = 1;
+            return result;
+        }
+
+        depth = 0;
+        for (int i = 0; i < boardState.movesCount; i++) {
+            MoveInfo moveInfo = boardState.moves[i];
+            intMakeMove(moveInfo);
+            result[moveInfo.move] = intPerft(plies - 1);
+            intUndo(moveInfo);
+        }
+        return result;
+    }
+
+    /**
+     * Recursive function of {@link #perft(int)}
+     */
+    private long intPerft(int plies) {
+        if (plies == 0) {
+            return 1;
+        }
+
+        depth++;
+
+        intFindMoves();
+        BoardState boardState = boardStates[depth];
+
+        long result = 0;
+        if (boardState.movesCount == 0) {
+            intPass();
+            // Game over ends the sequence, otherwise the pass is the ply
+            result = BitBoard.getMoves(player, opponent) == 0 ? 1 : intPerft(plies - 1);
+            intPass();
+        } else if (plies == 1) {
+            result = boardState.movesCount;
+        } else {
+            for (int i = 0; i < boardState.movesCount; i++) {
+                intMakeMove(boardState.moves[i]);
+                result += intPerft(plies - 1);
+                intUndo(boardState.moves[i]);
+            }
+        }
+
+        depth--;
+
+        return result;
+    }
+
+    /**
+     * Makes and takes back all move sequences of the specified count of
+     * plies like {@link #perft(int)} and returns false if the pattern
+     * indexes, the counts of pieces or the key of a position differ from
+     * the ones computed from scratch. Sequences end at a pass
+     */
+    boolean checkIncrementalState(int plies) {
+        if (plies < 0 || plies >= intMaxDepth) {
+            throw new IllegalArgumentException("Plies must be between 0 and " + (intMaxDepth - 1));
+        }
+
+        depth = 0;
+        return intCheckIncrementalState(plies);
+    }
+
+    /**
+     * Recursive function of {@link #checkIncrementalState(int)}, the moves
+     * of the current depth must be found
+     */
+    private boolean intCheckIncrementalState(int plies) {
+        if (!intIsIncrementalStateValid()) {
+            return false;
+        }
+
+        BoardState boardState = boardStates[depth];
+        for (int i = 0; plies > 0 && i < boardState.movesCount; i++) {
+            intMakeMove(boardState.moves[i]);
+            depth++;
+            intFindMoves();
+
+            boolean result = intCheckIncrementalState(plies - 1);
+
+            depth--;
+            intUndo(boardState.moves[i]);
+
+            if (!result || !intIsIncrementalStateValid()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether the values updated by {@link #intMakeMove(MoveInfo)}
+     * and {@link #intUndo(MoveInfo)} agree with the current position
+     */
+    private boolean intIsIncrementalStateValid() {
+        long dark = isDark() ? player : opponent;
+        long light = isDark() ? opponent : player;
+
+        int[] indexes = new int[patternIndexes.length];
+        PatternEvaluation.computeIndexes(dark, light, indexes);
+
+        return Arrays.equals(indexes, patternIndexes) && hash == intComputeHash() &&
+                intDarkPiecesCount == Long.bitCount(dark) && intLightPiecesCount == Long.bitCount(light);
+    }
+
+    /**
+     * Prepares internal variables and finds possible moves
+     * in current position
+     */
+    private void prepareMoves() {
+        depth = 0;
+        stopRequested = false;
+        endgameSolver.setStopRequested(false);
+        long dark = isDark() ? player : opponent;
+        long light = isDark() ? opponent : player;
+
+        intDarkPiecesCount = Long.bitCount(dark);
+        intLightPiecesCount = Long.bitCount(light);
+        PatternEvaluation.computeIndexes(dark, light, patternIndexes);
+
+        intFindMoves();
+        if (boardStates[0].movesCount == 0) {
+            intPass();
+            intFindMoves();
+            if (boardStates[0].movesCount == 0) {
+                intPass();
+            }
+        }
+    }
+
+    /**
+     * Calculates the best move in the current position and
+     * returns the best move that the computer has found, or null if the
+     * calculation was stopped by {@link #stop()}
+     *
+     * @see #search()
+     * @see #setSettings(SearchSettings)
+     * @see #maxRunDepth
+     * @see #maxRunTime
+     * @see #maxRunNodes
+     * @see #searchThreads
+     * @see #useOpeningBook
+     */
+    public Coord run() {
+        return search().getMove();
+    }
+
+    /**
+     * Calculates the best move like {@link #run()} and returns it together
+     * with the statistics of the calculation
+     */
+    public SearchResult search() {
+        long startTime = System.nanoTime();
+        BoardState boardState = boardStates[0];
+        SearchSettings current = settings != null ? settings : new SearchSettings();
+
+        if (boardState.movesCount == 1) {
+            return intCreateResult(SearchResult.Source.ONLY_MOVE, boardState.moves[0].move,
+                    0, 0, startTime, 0, 0);
+        }
+
+        if (openingBook != null && current.useOpeningBook) {
+            int bookMove = openingBook.getMove(player, opponent, RANDOM);
+            // A foreign position with the same key would give a wrong move
+            if (bookMove >= 0 && (BitBoard.getMoves(player, opponent) & (1L << bookMove)) != 0) {
+                return intCreateResult(SearchResult.Source.OPENING_BOOK, bookMove,
+                        0, 0, startTime, 0, 0);
+            }
+        }
+
+        intPrepareRun(current.maxRunTime > 0 ? System.nanoTime() + current.maxRunTime * 1000000 : 0,
+                current.maxRunNodes);
+        patternEvaluation = current.usePatternEvaluation;
+
+        ArrayList<Integer> bestMoves;
+        long endgameNodes = 0;
+
+        int emptyCount = 64 - intDarkPiecesCount - intLightPiecesCount;
+        if (emptyCount <= current.endgameEmpties || emptyCount <= current.endgameWinLossDrawEmpties) {
+            long endgameNodeLimit = current.maxEndgameNodes;
+            if (current.maxRunNodes > 0 && (endgameNodeLimit <= 0 || current.maxRunNodes < endgameNodeLimit)) {
+                endgameNodeLimit = current.maxRunNodes;
+            }
+            bestMoves = intRunEndgame(emptyCount > current.endgameEmpties, endgameNodeLimit);
+            endgameNodes = endgameSolver.getNodes();
+            if (bestMoves != null) {
+                return intCreateResult(SearchResult.Source.ENDGAME_SOLVER, intPickMove(bestMoves),
+                        runBestValue, emptyCount, startTime, endgameNodes, 0);
+            }
+            if (stopRequested) {
+                return intCreateResult(SearchResult.Source.ENDGAME_SOLVER, TranspositionTable.NO_MOVE,
+                        0, 0, startTime, endgameNodes, 0);
+            }
+        }
+
+        int completedDepth;
+        int bestValue;
+
+        boolean deepening = current.maxRunTime > 0 || current.maxRunNodes > 0;
+        int helperCount = deepening || current.maxRunDepth >= HELPERS_MIN_DEPTH ?
+                Math.max(0, current.searchThreads - 1) : 0;
+        Future<?>[] helperTasks = intStartHelpers(emptyCount, helperCount);
+        try {
+            if (!deepening) {
+                bestMoves = intRunDepth(current.maxRunDepth, TranspositionTable.NO_MOVE);
+                completedDepth = current.maxRunDepth;
+            } else {
+                // Iterative deepening. The limits do not stop the first step,
+                // only stop() does
+                bestMoves = intRunDepth(1, TranspositionTable.NO_MOVE);
+                completedDepth = 1;
+                bestValue = runBestValue;
+
+                for (int i = 2; !runStopped && i < intMaxDepth - 1 && i < emptyCount; i++) {
+                    ArrayList<Integer> stepMoves = intRunDepth(i, bestMoves.get(0));
+                    if (runStopped) {
+                        break;
+                    }
+                    bestMoves = stepMoves;
+                    completedDepth = i;
+                    bestValue = runBestValue;
+                }
+                runBestValue = bestValue;
+            }
+        } finally {
+            intStopHelpers(helperTasks);
+        }
+
+        if (bestMoves.isEmpty()) {
+            // The step was stopped before it valued any move
+            bestMoves.add(boardState.moves[0].move);
+        }
+
+        if (stopRequested) {
+            return intCreateResult(SearchResult.Source.SEARCH, TranspositionTable.NO_MOVE,
+                    0, 0, startTime, endgameNodes, helperCount);
+        }
+
+        return intCreateResult(SearchResult.Source.SEARCH, intPickMove(bestMoves),
+                runBestValue, completedDepth, startTime, endgameNodes, helperCount);
+    }
+
+    /**
+     * Returns the result of a calculation with the counters of this board
+     * and of the specified count of helpers which took part. Nothing is
+     * counted when the move was not calculated
+     *
+     * @see #search()
+     */
+    private SearchResult intCreateResult(SearchResult.Source source, int move, int score, int depth,
+            long startTime, long endgameNodes, int helperCount) {
+        long nodes = 0;
+        long leaves = 0;
+        long transpositionProbes = 0;
+        long transpositionHits = 0;
+        long transpositionCollisions = 0;
+        long cutoffs = 0;
+
+        if (source == SearchResult.Source.SEARCH || source == SearchResult.Source.ENDGAME_SOLVER) {
+            nodes = runNodes + horizonLeafCount + endgameNodes;
+            leaves = leafCount;
+            transpositionProbes = transpositionProbeCount;
+            transpositionHits = transpositionHitCount;
+            transpositionCollisions = transpositionCollisionCount;
+            cutoffs = cutoffCount;
+
+            for (int i = 0; i < helperCount; i++) {
+                Board helper = helpers[i];
+                nodes += helper.runNodes + helper.horizonLeafCount;
+                leaves += helper.leafCount;
+                transpositionProbes += helper.transpositionProbeCount;
+                transpositionHits += helper.transpositionHitCount;
+                transpositionCollisions += helper.transpositionCollisionCount;
+                cutoffs += helper.cutoffCount;
+            }
+        }
+
+        // The endgame solver stores nothing in the transposition table, the
+        // entries there are of older calculations
+        Coord[] principalVariation = move == TranspositionTable.NO_MOVE ? new Coord[0] :
+                intGetPrincipalVariation(move, source == SearchResult.Source.ENDGAME_SOLVER ? 1 : depth);
+
+        return new SearchResult(move == TranspositionTable.NO_MOVE ? null : indexToCoord(move), source,
+                score, depth, nodes, leaves, transpositionProbes, transpositionHits, transpositionCollisions,
+                cutoffs, System.nanoTime() - startTime, principalVariation);
+    }
+
+    /**
+     * Returns the specified move of the current position followed by the
+     * best moves stored in the transposition table, at most the specified
+     * count of moves. It ends at a pass or at a stored move which is not
+     * legal (a foreign position with the same key)
+     *
+     * @see #search()
+     */
+    private Coord[] intGetPrincipalVariation(int move, int maxLength) {
+        ArrayList<Coord> result = new ArrayList<Coord>();
+        MoveInfo[] madeMoves = new MoveInfo[intMaxDepth - 1];
+        int count = 0;
+
+        int nextMove = move;
+        while (count < madeMoves.length) {
+            BoardState boardState = boardStates[count];
+            MoveInfo moveInfo = null;
+            for (int i = 0; i < boardState.movesCount; i++) {
+                if (boardState.moves[i].move == nextMove) {
+                    moveInfo = boardState.moves[i];
+                }
+            }
+            if (moveInfo == null) {
+                break;
+            }
+
+            intMakeMove(moveInfo);
+            madeMoves[count++] = moveInfo;
+            result.add(indexToCoord(nextMove));
+
+            long ttValue = count < maxLength ? transpositionTable.probe(hash) : 0;
+            if (ttValue == 0) {
+                break;
+            }
+            nextMove = TranspositionTable.move(ttValue);
+
+            depth = count;
+            intFindMoves();
+        }
+
+        for (int i = count - 1; i >= 0; i--) {
+            intUndo(madeMoves[i]);
+        }
+        depth = 0;
+
+        return result.toArray(new Coord[result.size()]);
+    }
+
+    /**
+     * Resets the limits, the counters and the move ordering tables before
+     * a calculation
+     *
+     * @see #run()
+     */
+    private void intPrepareRun(long deadline, long nodeLimit) {
+        runNodes = 0;
+        runStopped = false;
+        runDeadline = deadline;
+        runNodeLimit = nodeLimit;
+
+        cutoffCount = 0;
+        firstMoveCutoffCount = 0;
+        leafCount = 0;
+        horizonLeafCount = 0;
+        transpositionProbeCount = 0;
+        transpositionHitCount = 0;
+        transpositionCollisionCount = 0;
+
+        for (int[] killers: killerMoves) {
+            killers[0] = TranspositionTable.NO_MOVE;
+            killers[1] = TranspositionTable.NO_MOVE;
+        }
+        for (int[] history: historyTable) {
+            for (int i = 0; i < history.length; i++) {
+                history[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * Starts the specified count of helpers on the current position and
+     * returns their tasks, or null if there are no helpers
+     *
+     * @see #intStopHelpers(Future[])
+     */
+    private Future<?>[] intStartHelpers(final int emptyCount, int count) {
+        if (count <= 0) {
+            return null;
+        }
+
+        if (helpers.length < count) {
+            Board[] newHelpers = Arrays.copyOf(helpers, count);
+            for (int i = helpers.length; i < count; i++) {
+                newHelpers[i] = new Board(transpositionTable, posValueRandom, i + 1);
+            }
+            helpers = newHelpers;
+        }
+
+        if (helperExecutor == null) {
+            // Daemon threads, so a forgotten board does not keep the
+            // application running
+            helperExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                private int threadCount;
+
+                public Thread newThread(Runnable runnable) {
+                    Thread result = new Thread(runnable, "search-helper-" + ++threadCount);
+                    result.setDaemon(true);
+                    return result;
+                }
+            });
+        }
+
+        Future<?>[] result = new Future<?>[count];
+        for (int i = 0; i < count; i++) {
+            final Board helper = helpers[i];
+
+            helper.player = player;
+            helper.opponent = opponent;
+            helper.movePiece = movePiece;
+            helper.hash = hash;
+            helper.patternEvaluation = patternEvaluation;
+            helper.prepareMoves();
+
+            result[i] = helperExecutor.submit(new Runnable() {
+                public void run() {
+                    helper.intRunHelper(emptyCount);
+                }
+            });
+        }
+
+        return result;
+    }
+
+    /**
+     * Stops the helpers of the specified tasks and waits for them, so their
+     * boards can be used by the next calculation
+     *
+     * @see #intStartHelpers(int, int)
+     */
+    private void intStopHelpers(Future<?>[] helperTasks) {
+        if (helperTasks == null) {
+            return;
+        }
+
+        for (int i = 0; i < helperTasks.length; i++) {
+            helpers[i].stop();
+        }
+
+        boolean interrupted = false;
+        for (Future<?> task: helperTasks) {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Helper calculation failed", e.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Calculation of a helper thread: deepens step by step until it is
+     * stopped. Every other helper starts one step deeper than the main
+     * thread, so they spread over more depths. The results are only
+     * stored in the transposition table
+     *
+     * @see #searchThreads
+     */
+    private void intRunHelper(int emptyCount) {
+        intPrepareRun(0, 0);
+
+        int firstMove = TranspositionTable.NO_MOVE;
+        for (int i = 1 + helperIndex % 2; i < intMaxDepth - 1 && i < emptyCount; i++) {
+            ArrayList<Integer> stepMoves = intRunDepth(i, firstMove);
+            if (runStopped) {
+                break;
+            }
+            firstMove = stepMoves.get(0);
+        }
+    }
+
+    /**
+     * Returns a random move of the specified equal best moves
+     */
+    private int intPickMove(ArrayList<Integer> bestMoves) {
+        return bestMoves.get(
+                (int)(RANDOM.nextDouble() * bestMoves.size())
+        );
+    }
+
+    /**
+     * Calculates the end of the game with {@link EndgameSolver} within the
+     * specified count of searched positions (0 means no limit) and
+     * returns the best moves, or null if the calculation ran out of time
+     * or positions or the win/loss/draw calculation found the game lost
+     *
+     * @see #run()
+     */
+    private ArrayList<Integer> intRunEndgame(boolean winLossDraw, long nodeLimit) {
+        BoardState boardState = boardStates[0];
+
+        endgameSolver.setLimits(runDeadline, nodeLimit);
+
+        intOrderMoves(boardState, TranspositionTable.NO_MOVE);
+
+        ArrayList<Integer> bestMoves = new ArrayList<Integer>();
+
+        int bestValue = -EndgameSolver.INFINITY;
+
+        for (int i = 0; i < boardState.movesCount; i++) {
+            MoveInfo moveInfo = boardState.moves[i];
+
+            long nextPlayer = opponent & ~moveInfo.flips;
+            long nextOpponent = player | moveInfo.flips | (1L << moveInfo.move);
+
+            // Values are final differences of pieces, or just their sign.
+            // Equal best moves are found the same way as in intRunDepth()
+            int moveValue;
+            if (winLossDraw) {
+                moveValue = Integer.signum(-endgameSolver.solve(nextPlayer, nextOpponent, -1, 1));
+            } else if (i == 0) {
+                moveValue = -endgameSolver.solve(nextPlayer, nextOpponent,
+                        -EndgameSolver.INFINITY, EndgameSolver.INFINITY);
+            } else {
+                moveValue = -endgameSolver.solve(nextPlayer, nextOpponent,
+                        -bestValue, 1 - bestValue);
+                if (moveValue >= bestValue) {
+                    moveValue = -endgameSolver.solve(nextPlayer, nextOpponent,
+                            -EndgameSolver.INFINITY, 1 - bestValue);
+                }
+            }
+
+            if (endgameSolver.isStopped()) {
+                return null;
+            }
+
+            // Update result
+            if (moveValue == bestValue) {
+                bestMoves.add(moveInfo.move);
+            } else if (moveValue > bestValue) {
+                bestValue = moveValue;
+
+                bestMoves.clear();
+                bestMoves.add(moveInfo.move);
+            }
+        }
+
+        runBestValue = bestValue;
+
+        if (winLossDraw && bestValue < 0) {
+            return null;
+        }
+
+        return bestMoves;
+    }
+
+    /**
+     * Returns count of beta cutoffs in the last calculation
+     */
+    public long getCutoffCount() {
+        return cutoffCount;
+    }
+
+    /**
+     * Returns count of beta cutoffs in the last calculation which were
+     * caused by the first searched move. The closer it is to
+     * {@link #getCutoffCount()} the better the move ordering works
+     */
+    public long getFirstMoveCutoffCount() {
+        return firstMoveCutoffCount;
+    }
+
+    /**
+     * Calculates values of all moves in the current position with the
+     * specified maximum depth and returns the best moves. The specified
+     * move (the best one of the previous step) is searched first
+     *
+     * @see #run()
+     */
+    private ArrayList<Integer> intRunDepth(int maxDepth, int firstMove) {
+        BoardState boardState = boardStates[0];
+
+        runDepth = maxDepth;
+
+        intOrderMoves(boardState, firstMove);
+
+        ArrayList<Integer> bestMoves = new ArrayList<Integer>();
+
+        int bestValue = -intMaxPosValue;
+
+        for (int i = 0; i < boardState.movesCount; i++) {
+            intMakeMove(boardState.moves[i]);
+
+            // Moves which are worse than the best one are refuted by a null
+            // window search, the rest are searched again to get exact values,
+            // so all the equal best moves are found
+            int moveValue;
+            if (i == 0) {
+                moveValue = -intRekursPosValue(-intMaxPosValue, intMaxPosValue);
+            } else {
+                moveValue = -intRekursPosValue(-bestValue, 1 - bestValue);
+                if (moveValue >= bestValue) {
+                    moveValue = -intRekursPosValue(-intMaxPosValue, 1 - bestValue);
+                }
+            }
+
+            intUndo(boardState.moves[i]);
+
+            if (runStopped) {
+                break;
+            }
+
+            // Update result
+            if (moveValue == bestValue) {
+                bestMoves.add(boardState.moves[i].move);
+            } else if (moveValue > bestValue) {
+                bestValue = moveValue;
+
+                bestMoves.clear();
+                bestMoves.add(boardState.moves[i].move);
+            }
+        }
+
+        runBestValue = bestValue;
+
+        return bestMoves;
+    }
+
+    /**
+     * Sorts moves of the specified state, the best candidates first: the
+     * specified move (from the transposition table or the previous
+     * calculation step), the killer moves of the depth, then by the
+     * history table and {@link #squareOrder}
+     *
+     * @see #run()
+     */
+    private void intOrderMoves(BoardState boardState, int firstMove) {
+        int[] killers = killerMoves[depth];
+        int[] history = historyTable[boardState.dark ? 0 : 1];
+        MoveInfo[] moves = boardState.moves;
+
+        for (int i = 0; i < boardState.movesCount; i++) {
+            MoveInfo moveInfo = moves[i];
+            int move = moveInfo.move;
+
+            if (move == firstMove) {
+                moveInfo.order = intHashMoveOrder;
+            } else if (move == killers[0]) {
+                moveInfo.order = intKillerMoveOrder;
+            } else if (move == killers[1]) {
+                moveInfo.order = intKillerMoveOrder - 1;
+            } else {
+                moveInfo.order = history[move] + squareOrder[move] * intSquareOrderWeight;
+            }
+
+            // Insertion sort, there are only few moves
+            int j = i;
+            while (j > 0 && moves[j - 1].order < moveInfo.order) {
+                moves[j] = moves[j - 1];
+                j--;
+            }
+            moves[j] = moveInfo;
+        }
+    }
+
+    /**
+     * Remembers the move which caused a beta cutoff in the killer moves
+     * and the history table
+     *
+     * @see #intOrderMoves(BoardState, int)
+     */
+    private void intStoreCutoff(BoardState boardState, int index, int draft) {
+        int move = boardState.moves[index].move;
+
+        cutoffCount++;
+        if (index == 0) {
+            firstMoveCutoffCount++;
+        }
+
+        int[] killers = killerMoves[depth];
+        if (killers[0] != move) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+
+        int[] history = historyTable[boardState.dark ? 0 : 1];
+        history[move] += draft * draft;
+        if (history[move] > intSquareOrderWeight * 64) {
+            // Keep old cutoffs from outweighing the cell priorities for good
+            for (int i = 0; i < history.length; i++) {
+                history[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * Counts a searched position and checks the limits of the running
+     * calculation and {@link #stop()}. They are read only every 256
+     * positions
+     *
+     * @see #runStopped
+     */
+    private boolean intCheckStop() {
+        runNodes++;
+
+        if ((runNodes & 0xFF) == 0) {
+            if (stopRequested) {
+                runStopped = true;
+            } else if (runDepth > 1 &&
+                    ((runDeadline != 0 && System.nanoTime() - runDeadline >= 0) ||
+                    (runNodeLimit > 0 && runNodes >= runNodeLimit))) {
+                runStopped = true;
+            }
+        }
+
+        return runStopped;
+    }
+
+    /**
+     * Recursive function which calculates value of current position.
+     * It is a negamax alpha-beta search with principal variation search:
+     * the first move is searched with the full window and the other moves
+     * with a null window, which is widened only when a move turns out
+     * to be better. The result is the value for the player to move,
+     * it is exact when it lies between alpha and beta, otherwise it is
+     * a bound
+     *
+     * @see #run()
+     */
+    private int intRekursPosValue(int alpha, int beta) {
+        if (intCheckStop()) {
+            return 0;
+        }
+
+        depth++;
+
+        // Count of plies searched from this position
+        int draft = runDepth - depth + 1;
+
+        long ttValue = transpositionTable.probe(hash);
+        int hashMove = TranspositionTable.NO_MOVE;
+        transpositionProbeCount++;
+        if (ttValue != 0) {
+            hashMove = TranspositionTable.move(ttValue);
+            transpositionHitCount++;
+        } else if (transpositionTable.isOccupied(hash)) {
+            transpositionCollisionCount++;
+        }
+        if (ttValue != 0 && TranspositionTable.depth(ttValue) >= draft) {
+            int ttScore = TranspositionTable.score(ttValue);
+            int bound = TranspositionTable.bound(ttValue);
+            if (bound == TranspositionTable.BOUND_EXACT ||
+                    (bound == TranspositionTable.BOUND_LOWER && ttScore >= beta) ||
+                    (bound == TranspositionTable.BOUND_UPPER && ttScore <= alpha)) {
+                depth--;
+
+                return ttScore;
+            }
+        }
+
+        long nodeHash = hash;
+        int nodeAlpha = alpha;
+        int nodeBeta = beta;
+
+        intFindMoves();
+        BoardState boardState = boardStates[depth];
+
+        boolean pass = false;
+
+        if (boardState.movesCount == 0) {
+            intPass();
+            intFindMoves();
+            if (boardState.movesCount == 0) {
+                // Game over
+                intPass();
+                depth--;
+                leafCount++;
+
+                int value = intGetPosValue(true);
+
+                return isDark() ? value : -value;
+            }
+
+            // The opponent moves instead, so the window is seen from the other side
+            pass = true;
+
+            int tmp = alpha;
+            alpha = -beta;
+            beta = -tmp;
+        }
+
+        intOrderMoves(boardState, hashMove);
+
+        int result = -intMaxPosValue;
+        int bestMove = TranspositionTable.NO_MOVE;
+
+        for (int i = 0; i < boardState.movesCount; i++) {
+            intMakeMove(boardState.moves[i]);
+
+            int moveValue;
+            if (depth >= runDepth) {
+                leafCount++;
+                horizonLeafCount++;
+                moveValue = intGetPosValue(false);
+                if (!boardState.dark) {
+                    moveValue = -moveValue;
+                }
+            } else if (i == 0) {
+                moveValue = -intRekursPosValue(-beta, -alpha);
+            } else {
+                moveValue = -intRekursPosValue(-alpha - 1, -alpha);
+                if (moveValue > alpha && moveValue < beta) {
+                    moveValue = -intRekursPosValue(-beta, -alpha);
+                }
+            }
+
+            // Restore position
+            intUndo(boardState.moves[i]);
+
+            if (runStopped) {
+                break;
+            }
+
+            // Update result
+            if (moveValue > result) {
+                result = moveValue;
+                bestMove = boardState.moves[i].move;
+
+                if (moveValue > alpha) {
+                    alpha = moveValue;
+
+                    if (alpha >= beta) {
+                        intStoreCutoff(boardState, i, draft);
+                        break;
+                    }
+                }
+            }
+        }
+
+        depth--;
+
+        // Take back the pass as well, the position may be searched again
+        if (pass) {
+            intPass();
+
+            result = -result;
+        }
+
+        // The value of a stopped calculation is not complete
+        if (runStopped) {
+            return 0;
+        }
+
+        int bound = result <= nodeAlpha ? TranspositionTable.BOUND_UPPER :
+                result >= nodeBeta ? TranspositionTable.BOUND_LOWER :
+                        TranspositionTable.BOUND_EXACT;
+        transpositionTable.store(nodeHash, result, draft, bound, bestMove);
+
+        return result;
+    }
+
+    /**
+     * Returns value of current position for the dark player. It uses
+     * {@link PatternEvaluation} when its weights are loaded and the
+     * settings allow it
+     *
+     * @see #run()
+     */
+    private int intGetPosValue(boolean gameOver) {
+        int piecesCount = intDarkPiecesCount + intLightPiecesCount;
+        if (gameOver || piecesCount == 64) {
+            if (intDarkPiecesCount == intLightPiecesCount) {
+                return 0;
+            } else {
+                // Winning position with more pieces shold have better value
+                return intDarkPiecesCount > intLightPiecesCount ?
+                        intLoseValue + intDarkPiecesCount - intLightPiecesCount:
+                        -intLoseValue - intLightPiecesCount + intDarkPiecesCount;
+            }
+        }
+
+        int result;
+
+        long dark = isDark() ? player : opponent;
+        long light = isDark() ? opponent : player;
+
+        if (patternEvaluation && PatternEvaluation.isLoaded()) {
+            result = PatternEvaluation.evaluate(patternIndexes, piecesCount);
+        } else if (piecesCount < 56) {
+            int corners = 0;
+            int neighbours = 0;
+
+            // Corner cells are very well, price is 64
+            // Corner neighbours are bad, price is -16
+            for (int i = 0; i < intCorners.length; i += 2) {
+                long corner = intCorners[i];
+
+                if ((dark & corner) != 0) {
+                    corners++;
+                } else if ((light & corner) != 0) {
+                    corners--;
+                } else {
+                    long neighbourCells = intCorners[i + 1];
+                    neighbours += Long.bitCount(dark & neighbourCells) -
+                            Long.bitCount(light & neighbourCells);
+                }
+            }
+
+            // It's a good idea to have only few pieces
+            result = (corners << 6) - (neighbours << 4) +
+                    intLightPiecesCount - intDarkPiecesCount;
+        } else {
+            result = intDarkPiecesCount - intLightPiecesCount;
+        }
+
+        // The noise depends only on the position (its Zobrist key), so a
+        // position has the same value whatever order the search reaches it in
+        int noiseIndex = (int) ((hash >>> 32) % posValueRandom.length);
+
+        return result + posValueRandom[noiseIndex];
+    }
+
+    /**
+     * Finds moves in the current position
+     *
+     * @see #run()
+     */
+    private void intFindMoves() {
+        BoardState boardState = boardStates[depth];
+        int currMovesCount = 0;
+
+        long moves = BitBoard.getMoves(player, opponent);
+        while (moves != 0) {
+            int move = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+
+            MoveInfo moveInfo = boardState.moves[currMovesCount];
+
+            currMovesCount++;
+
+            moveInfo.move = move;
+            moveInfo.flips = BitBoard.getFlips(move, player, opponent);
+        }
+
+        boardState.movesCount = currMovesCount;
+        boardState.dark = isDark();
+    }
+
+    /**
+     * Perform specified move
+     *
+     * @see #run()
+     */
+    private void intMakeMove(MoveInfo moveInfo) {
+        // Put a piece and rotate enemy pieces
+        long flips = moveInfo.flips;
+        int rotatedCount = Long.bitCount(flips);
+
+        long newOpponent = player | flips | (1L << moveInfo.move);
+        player = opponent & ~flips;
+        opponent = newOpponent;
+
+        // Rotated pieces change both their dark and light keys. A put piece
+        // adds its digit to the pattern indexes, a rotated one changes it
+        // between dark (1) and light (2)
+        int pieceDigit = isDark() ? 1 : 2;
+        int rotateDigit = isDark() ? -1 : 1;
+
+        long newHash = hash ^ zobristDarkMove ^
+                (isDark() ? zobristDark[moveInfo.move] : zobristLight[moveInfo.move]);
+        intUpdatePatterns(moveInfo.move, pieceDigit);
+        while (flips != 0) {
+            int square = Long.numberOfTrailingZeros(flips);
+            flips &= flips - 1;
+            newHash ^= zobristDark[square] ^ zobristLight[square];
+            intUpdatePatterns(square, rotateDigit);
+        }
+        hash = newHash;
+
+        if (isDark()) {
+            intDarkPiecesCount += 1 + rotatedCount;
+            intLightPiecesCount -= rotatedCount;
+
+            movePiece = PIECE_LIGHT;
+        } else {
+            intLightPiecesCount += 1 + rotatedCount;
+            intDarkPiecesCount -= rotatedCount;
+
+            movePiece = PIECE_DARK;
+        }
+    }
+
+    /**
+     * Gives the move to the opponent without putting a piece
+     *
+     * @see #run()
+     */
+    private void intPass() {
+        long tmp = player;
+        player = opponent;
+        opponent = tmp;
+
+        movePiece = -movePiece;
+        hash ^= zobristDarkMove;
+    }
+
+    /**
+     * Adds the specified multiple of the cell powers to the indexes of
+     * the patterns of the cell
+     *
+     * @see #patternIndexes
+     */
+    private void intUpdatePatterns(int square, int digit) {
+        int[] instances = PatternEvaluation.CELL_INSTANCES[square];
+        int[] powers = PatternEvaluation.CELL_POWERS[square];
+        for (int i = 0; i < instances.length; i++) {
+            patternIndexes[instances[i]] += digit * powers[i];
+        }
+    }
+
+    /**
+     * Takes back the specified move, it must be the last one made. Only
+     * the put piece and the rotated pieces are reverted, so no copy of
+     * the board is needed
+     *
+     * @see #run()
+     */
+    private void intUndo(MoveInfo moveInfo) {
+        long flips = moveInfo.flips;
+        long bit = 1L << moveInfo.move;
+
+        long oldPlayer = opponent ^ flips ^ bit;
+        opponent = player | flips;
+        player = oldPlayer;
+
+        movePiece = -movePiece;
+
+        int rotatedCount = Long.bitCount(flips);
+        if (isDark()) {
+            intDarkPiecesCount -= 1 + rotatedCount;
+            intLightPiecesCount += rotatedCount;
+        } else {
+            intLightPiecesCount -= 1 + rotatedCount;
+            intDarkPiecesCount += rotatedCount;
+        }
+
+        long oldHash = hash ^ zobristDarkMove ^
+                (isDark() ? zobristDark[moveInfo.move] : zobristLight[moveInfo.move]);
+        intUpdatePatterns(moveInfo.move, isDark() ? -1 : -2);
+        int rotateDigit = isDark() ? 1 : -1;
+        while (flips != 0) {
+            int square = Long.numberOfTrailingZeros(flips);
+            flips &= flips - 1;
+            oldHash ^= zobristDark[square] ^ zobristLight[square];
+            intUpdatePatterns(square, rotateDigit);
+        }
+        hash = oldHash;
+    }
+
+    /**
+     * Calculates the Zobrist key of the current position from scratch
+     *
+     * @see #hash
+     */
+    private long intComputeHash() {
+        long dark = isDark() ? player : opponent;
+        long light = isDark() ? opponent : player;
+        long result = isDark() ? zobristDarkMove : 0;
+        for (int i = 0; i < 64; i++) {
+            if ((dark & (1L << i)) != 0) {
+                result ^= zobristDark[i];
+            } else if ((light & (1L << i)) != 0) {
+                result ^= zobristLight[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts board coordinates into bit index of the {@link #player}
+     * and {@link #opponent} masks
+     */
+    private static int coordToIndex(int x, int y) {
+        return y * 8 + x;
+    }
+
+    /**
+     * Converts board coordinates into a mask with the single bit of the cell
+     */
+    private static long coordToMask(int x, int y) {
+        return 1L << coordToIndex(x, y);
+    }
+
+    /**
+     * Converts bit index of the {@link #player} and {@link #opponent}
+     * masks into board coordinates
+     */
+    private static Coord indexToCoord(int index) {
+        return new Coord(index & 7, index >> 3);
+    }
+
+    /**
+     * Move information
+     */
+    private static class MoveInfo {
+        public int move;
+
+        public long flips;
+
+        public int order;
+    }
+
+    /**
+     * Moves of a position of the calculation. The moves keep their
+     * rotated pieces, {@link #intUndo(MoveInfo)} needs nothing else
+     */
+    private static class BoardState {
+        public boolean dark;
+
+        public int movesCount;
+
+        public final MoveInfo[] moves = new MoveInfo[64];
+
+        public BoardState() {
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = new MoveInfo();
+            }
+        }
+    }
+}
+
@@ -0,0 +1,484 @@
+package net.dynart.reversi;
+
+/**
+ * Exact solver for the end of the game. It returns the final difference
+ * of pieces (player minus opponent) with perfect play from both sides.
+ * A search with the (-1, 1) window only tells win, loss or draw, which
+ * is much faster.
+ *
+ * The empty cells are kept in a linked list ordered by cell priority.
+ * Near the end moves are tried in quadrants with an odd count of empty
+ * cells first (parity), earlier the moves which leave the opponent
+ * the fewest replies go first (fastest first). The last four empty
+ * cells have their own routines without move generation
+ *
+ * @see Board#endgameEmpties
+ */
+final class EndgameSolver {
+
+    /**
+     * Bigger than any difference of pieces
+     */
+    static final int INFINITY = 65;
+
+    /**
+     * Count of empty cells up to which moves are ordered by parity only,
+     * above it the fastest first ordering pays off
+     */
+    private static final int PARITY_ORDER_EMPTIES = 7;
+
+    /**
+     * Cells in order of priority, the list of empty cells follows it
+     */
+    private static final int[] SQUARE_ORDER = {
+            0, 7, 56, 63,
+            2, 5, 16, 23, 40, 47, 58, 61,
+            3, 4, 24, 31, 32, 39, 59, 60,
+            18, 21, 42, 45,
+            19, 20, 26, 29, 34, 37, 43, 44, 27, 28, 35, 36,
+            11, 12, 25, 30, 33, 38, 51, 52,
+            10, 13, 17, 22, 41, 46, 50, 53,
+            1, 6, 8, 15, 48, 55, 57, 62,
+            9, 14, 49, 54};
+
+    /**
+     * Quadrant of every cell as a single bit
+     */
+    private static final int[] QUADRANT = new int[64];
+
+    static {
+        for (int i = 0; i < 64; i++) {
+            QUADRANT[i] = 1 << (((i >> 4) & 2) | ((i >> 2) & 1));
+        }
+    }
+
+    /**
+     * List head and tail of {@link #next} and {@link #prev}
+     */
+    private static final int LIST_END = 64;
+
+    private final int[] next = new int[65];
+
+    private final int[] prev = new int[65];
+
+    /**
+     * Quadrants with an odd count of empty cells
+     */
+    private int parity;
+
+    /**
+     * Move buffers of the fastest first ordering, one row per count of
+     * empty cells
+     */
+    private final int[][] moveSquares = new int[61][32];
+
+    private final long[][] moveFlips = new long[61][32];
+
+    private final int[][] moveOrder = new int[61][32];
+
+    private long nodes;
+
+    private long deadline;
+
+    private long nodeLimit;
+
+    /**
+     * Count of nodes at which the limits are checked next. The last nodes
+     * are counted without a check, so the count can pass any multiple
+     */
+    private long nextCheck;
+
+    private boolean stopped;
+
+    /**
+     * Set from another thread to stop the running calculation
+     */
+    private volatile boolean stopRequested;
+
+    /**
+     * Sets limits of the next calculations. The deadline is a
+     * {@link System#nanoTime()} value, 0 means no limit
+     */
+    void setLimits(long deadline, long nodeLimit) {
+        this.deadline = deadline;
+        this.nodeLimit = nodeLimit;
+        nodes = 0;
+        nextCheck = 1024;
+        stopped = false;
+    }
+
+    /**
+     * Requests the running and the next calculations to stop, or clears
+     * the request. It can be called from any thread
+     */
+    void setStopRequested(boolean stopRequested) {
+        this.stopRequested = stopRequested;
+    }
+
+    /**
+     * Returns count of positions searched since {@link #setLimits(long, long)}
+     */
+    long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Determines whether a calculation ran out of time or positions,
+     * then its result is not valid
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Returns the final difference of pieces for the player to move, or
+     * a bound of it when it is outside of the alpha-beta window
+     */
+    int solve(long player, long opponent, int alpha, int beta) {
+        long empty = ~(player | opponent);
+
+        int last = LIST_END;
+        int emptyCount = 0;
+        parity = 0;
+        for (int square: SQUARE_ORDER) {
+            if ((empty & (1L << square)) != 0) {
+                next[last] = square;
+                prev[square] = last;
+                last = square;
+                emptyCount++;
+                parity ^= QUADRANT[square];
+            }
+        }
+        next[last] = LIST_END;
+        prev[LIST_END] = last;
+
+        return intSolve(player, opponent, alpha, beta, emptyCount, false);
+    }
+
+    private int intSolve(long player, long opponent, int alpha, int beta, int emptyCount,
+                         boolean passed) {
+        if (emptyCount <= 4) {
+            return intSolveLast(player, opponent, alpha, beta, emptyCount);
+        }
+
+        nodes++;
+        if (nodes >= nextCheck) {
+            nextCheck = nodes + 1024;
+            if (stopRequested ||
+                    (deadline != 0 && System.nanoTime() - deadline >= 0) ||
+                    (nodeLimit > 0 && nodes >= nodeLimit)) {
+                stopped = true;
+            }
+        }
+        if (stopped) {
+            return 0;
+        }
+
+        long moves = BitBoard.getMoves(player, opponent);
+        if (moves == 0) {
+            if (passed) {
+                return Long.bitCount(player) - Long.bitCount(opponent);
+            }
+            return -intSolve(opponent, player, -beta, -alpha, emptyCount, true);
+        }
+
+        int result = -INFINITY;
+
+        if (emptyCount > PARITY_ORDER_EMPTIES) {
+            // Fastest first: the moves that leave the fewest replies
+            int[] squares = moveSquares[emptyCount];
+            long[] flipsList = moveFlips[emptyCount];
+            int[] order = moveOrder[emptyCount];
+            int count = 0;
+
+            for (int square = next[LIST_END]; square != LIST_END; square = next[square]) {
+                if ((moves & (1L << square)) == 0) {
+                    continue;
+                }
+                long flips = BitBoard.getFlips(square, player, opponent);
+                int key = Long.bitCount(BitBoard.getMoves(opponent & ~flips,
+                        player | flips | (1L << square)));
+
+                // Insertion sort, the list order stays for equal keys
+                int j = count;
+                while (j > 0 && order[j - 1] > key) {
+                    squares[j] = squares[j - 1];
+                    flipsList[j] = flipsList[j - 1];
+                    order[j] = order[j - 1];
+                    j--;
+                }
+                squares[j] = square;
+                flipsList[j] = flips;
+                order[j] = key;
+                count++;
+            }
+
+            for (int i = 0; i < count; i++) {
+                int value = -intSolveMove(player, opponent, -beta, -alpha, emptyCount,
+                        squares[i], flipsList[i]);
+                if (value > result) {
+                    result = value;
+                    if (value > alpha) {
+                        alpha = value;
+                        if (alpha >= beta) {
+                            break;
+                        }
+                    }
+                }
+            }
+        } else {
+            // Parity: moves in quadrants with odd count of empty cells first
+            int nodeParity = parity;
+            for (int round = 0; round < 2; round++) {
+                for (int square = next[LIST_END]; square != LIST_END; square = next[square]) {
+                    if ((moves & (1L << square)) == 0 ||
+                            ((nodeParity & QUADRANT[square]) != 0) == (round == 1)) {
+                        continue;
+                    }
+                    int value = -intSolveMove(player, opponent, -beta, -alpha, emptyCount,
+                            square, BitBoard.getFlips(square, player, opponent));
+                    if (value > result) {
+                        result = value;
+                        if (value > alpha) {
+                            alpha = value;
+                            if (alpha >= beta) {
+                                return result;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Puts a piece, searches the position from the opponent's side and
+     * takes the piece back
+     */
+    private int intSolveMove(long player, long opponent, int alpha, int beta, int emptyCount,
+                             int square, long flips) {
+        // Remove the cell from the list of empty cells
+        int before = prev[square];
+        int after = next[square];
+        next[before] = after;
+        prev[after] = before;
+        parity ^= QUADRANT[square];
+
+        int value = intSolve(opponent & ~flips, player | flips | (1L << square),
+                alpha, beta, emptyCount - 1, false);
+
+        parity ^= QUADRANT[square];
+        next[before] = square;
+        prev[after] = square;
+
+        return value;
+    }
+
+    /**
+     * Solves positions with at most 4 empty cells
+     */
+    private int intSolveLast(long player, long opponent, int alpha, int beta, int emptyCount) {
+        int x1 = next[LIST_END];
+        int x2 = next[x1];
+        int x3 = next[x2];
+        int x4 = next[x3];
+
+        switch (emptyCount) {
+            case 4:
+                // Parity: a cell alone in its quadrant goes first
+                if ((parity & QUADRANT[x1]) == 0) {
+                    if ((parity & QUADRANT[x2]) != 0) {
+                        int tmp = x1;
+                        x1 = x2;
+                        x2 = x3;
+                        x3 = tmp;
+                    } else if ((parity & QUADRANT[x3]) != 0) {
+                        int tmp = x1;
+                        x1 = x3;
+                        x3 = x2;
+                        x2 = tmp;
+                    } else if ((parity & QUADRANT[x4]) != 0) {
+                        int tmp = x1;
+                        x1 = x4;
+                        x4 = x3;
+                        x3 = x2;
+                        x2 = tmp;
+                    }
+                }
+                return intSolve4(player, opponent, alpha, beta, x1, x2, x3, x4);
+            case 3:
+                return intSolve3(player, opponent, alpha, beta, x1, x2, x3);
+            case 2:
+                return intSolve2(player, opponent, alpha, beta, x1, x2);
+            case 1:
+                return intSolve1(player, opponent, x1);
+            default:
+                return Long.bitCount(player) - Long.bitCount(opponent);
+        }
+    }
+
+    private int intSolve4(long player, long opponent, int alpha, int beta,
+                          int x1, int x2, int x3, int x4) {
+        nodes++;
+
+        int result = -INFINITY;
+        long flips;
+
+        if ((flips = BitBoard.getFlips(x1, player, opponent)) != 0) {
+            result = -intSolve3(opponent & ~flips, player | flips | (1L << x1),
+                    -beta, -alpha, x2, x3, x4);
+            if (result >= beta) {
+                return result;
+            }
+            if (result > alpha) {
+                alpha = result;
+            }
+        }
+        if ((flips = BitBoard.getFlips(x2, player, opponent)) != 0) {
+            int value = -intSolve3(opponent & ~flips, player | flips | (1L << x2),
+                    -beta, -alpha, x1, x3, x4);
+            if (value >= beta) {
+                return value;
+            }
+            if (value > result) {
+                result = value;
+                if (value > alpha) {
+                    alpha = value;
+                }
+            }
+        }
+        if ((flips = BitBoard.getFlips(x3, player, opponent)) != 0) {
+            int value = -intSolve3(opponent & ~flips, player | flips | (1L << x3),
+                    -beta, -alpha, x1, x2, x4);
+            if (value >= beta) {
+                return value;
+            }
+            if (value > result) {
+                result = value;
+                if (value > alpha) {
+                    alpha = value;
+                }
+            }
+        }
+        if ((flips = BitBoard.getFlips(x4, player, opponent)) != 0) {
+            int value = -intSolve3(opponent & ~flips, player | flips | (1L << x4),
+                    -beta, -alpha, x1, x2, x3);
+            if (value > result) {
+                result = value;
+            }
+        }
+
+        if (result == -INFINITY) {
+            // No move, the opponent moves if it can
+            if (BitBoard.getFlips(x1, opponent, player) == 0 &&
+                    BitBoard.getFlips(x2, opponent, player) == 0 &&
+                    BitBoard.getFlips(x3, opponent, player) == 0 &&
+                    BitBoard.getFlips(x4, opponent, player) == 0) {
+                return Long.bitCount(player) - Long.bitCount(opponent);
+            }
+            return -intSolve4(opponent, player, -beta, -alpha, x1, x2, x3, x4);
+        }
+
+        return result;
+    }
+
+    private int intSolve3(long player, long opponent, int alpha, int beta,
+                          int x1, int x2, int x3) {
+        nodes++;
+
+        int result = -INFINITY;
+        long flips;
+
+        if ((flips = BitBoard.getFlips(x1, player, opponent)) != 0) {
+            result = -intSolve2(opponent & ~flips, player | flips | (1L << x1),
+                    -beta, -alpha, x2, x3);
+            if (result >= beta) {
+                return result;
+            }
+            if (result > alpha) {
+                alpha = result;
+            }
+        }
+        if ((flips = BitBoard.getFlips(x2, player, opponent)) != 0) {
+            int value = -intSolve2(opponent & ~flips, player | flips | (1L << x2),
+                    -beta, -alpha, x1, x3);
+            if (value >= beta) {
+                return value;
+            }
+            if (value > result) {
+                result = value;
+                if (value > alpha) {
+                    alpha = value;
+                }
+            }
+        }
+        if ((flips = BitBoard.getFlips(x3, player, opponent)) != 0) {
+            int value = -intSolve2(opponent & ~flips, player | flips | (1L << x3),
+                    -beta, -alpha, x1, x2);
+            if (value > result) {
+                result = value;
+            }
+        }
+
+        if (result == -INFINITY) {
+            if (BitBoard.getFlips(x1, opponent, player) == 0 &&
+                    BitBoard.getFlips(x2, opponent, player) == 0 &&
+                    BitBoard.getFlips(x3, opponent, player) == 0) {
+                return Long.bitCount(player) - Long.bitCount(opponent);
+            }
+            return -intSolve3(opponent, player, -beta, -alpha, x1, x2, x3);
+        }
+
+        return result;
+    }
+
+    private int intSolve2(long player, long opponent, int alpha, int beta, int x1, int x2) {
+        nodes++;
+
+        int result = -INFINITY;
+        long flips;
+
+        if ((flips = BitBoard.getFlips(x1, player, opponent)) != 0) {
+            result = -intSolve1(opponent & ~flips, player | flips | (1L << x1), x2);
+            if (result >= beta) {
+                return result;
+            }
+        }
+        if ((flips = BitBoard.getFlips(x2, player, opponent)) != 0) {
+            int value = -intSolve1(opponent & ~flips, player | flips | (1L << x2), x1);
+            if (value > result) {
+                result = value;
+            }
+        }
+
+        if (result == -INFINITY) {
+            if (BitBoard.getFlips(x1, opponent, player) == 0 &&
+                    BitBoard.getFlips(x2, opponent, player) == 0) {
+                return Long.bitCount(player) - Long.bitCount(opponent);
+            }
+            return -intSolve2(opponent, player, -beta, -alpha, x1, x2);
+        }
+
+        return result;
+    }
+
+    private int intSolve1(long player, long opponent, int x) {
+        nodes++;
+
+        int score = Long.bitCount(player) - Long.bitCount(opponent);
+
+        long flips = BitBoard.getFlips(x, player, opponent);
+        if (flips != 0) {
+            return score + 1 + 2 * Long.bitCount(flips);
+        }
+
+        flips = BitBoard.getFlips(x, opponent, player);
+        if (flips != 0) {
+            return score - 1 - 2 * Long.bitCount(flips);
+        }
+
+        return score;
+    }
+}
@@ -0,0 +1,154 @@
+package net.dynart.reversi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary record of a game: the position, the moves played, the
+ * piece of the computer and the difficulty. The position itself is
+ * stored, so a game is restored without replaying its moves
+ *
+ * <p>The format is a version byte, the masks of the dark and the light
+ * pieces in 8 bytes each, a flags byte, the count of moves and one byte
+ * for each move holding its cell {@code y * 8 + x}. The flags hold the
+ * player to move in bit 0, the piece of the computer plus one in bits
+ * 1-2 and the difficulty in bits 3-7
+ */
+public final class GameRecord {
+
+    /**
+     * Most moves a game can have
+     */
+    public static final int MAX_MOVES = 60;
+
+    /**
+     * Highest difficulty a record can hold
+     */
+    public static final int MAX_DIFFICULTY = 31;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 19;
+
+    private final Position position;
+
+    private final byte[] moves;
+
+    private final int computerPiece;
+
+    private final int difficulty;
+
+    /**
+     * Creates a record from the first movesCount cells of the moves
+     *
+     * @param computerPiece {@link Board#PIECE_EMPTY} when nobody plays
+     *                      against the computer
+     */
+    public GameRecord(Position position, int[] moves, int movesCount, int computerPiece, int difficulty) {
+        if ((position.getDark() & position.getLight()) != 0) {
+            throw new IllegalArgumentException("Dark and light pieces overlap");
+        }
+        if (movesCount < 0 || movesCount > MAX_MOVES) {
+            throw new IllegalArgumentException("Moves count must be between 0 and " + MAX_MOVES);
+        }
+        if (computerPiece < Board.PIECE_LIGHT || computerPiece > Board.PIECE_DARK) {
+            throw new IllegalArgumentException("Not a piece: " + computerPiece);
+        }
+        if (difficulty < 0 || difficulty > MAX_DIFFICULTY) {
+            throw new IllegalArgumentException("Difficulty must be between 0 and " + MAX_DIFFICULTY);
+        }
+
+        this.position = position;
+        this.moves = new byte[movesCount];
+        for (int i = 0; i < movesCount; i++) {
+            if (moves[i] < 0 || moves[i] > 63) {
+                throw new IllegalArgumentException("Not a cell: " + moves[i]);
+            }
+            this.moves[i] = (byte) moves[i];
+        }
+        this.computerPiece = computerPiece;
+        this.difficulty = difficulty;
+    }
+
+    /**
+     * Reads a record written by {@link #encode()}
+     */
+    public static GameRecord decode(byte[] data) throws IOException {
+        if (data == null || data.length < HEADER_SIZE || data[0] != VERSION) {
+            throw new IOException("Not a game record");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long dark = buffer.getLong(1);
+        long light = buffer.getLong(9);
+        int flags = data[17] & 0xff;
+        int movesCount = data[18] & 0xff;
+
+        if (movesCount > MAX_MOVES || data.length != HEADER_SIZE + movesCount) {
+            throw new IOException("Game record is truncated");
+        }
+
+        int computerPiece = ((flags >> 1) & 3) - 1;
+        if ((dark & light) != 0 || computerPiece > Board.PIECE_DARK) {
+            throw new IOException("Game record is corrupt");
+        }
+
+        int[] moves = new int[movesCount];
+        for (int i = 0; i < movesCount; i++) {
+            moves[i] = data[HEADER_SIZE + i];
+            if (moves[i] < 0 || moves[i] > 63) {
+                throw new IOException("Game record is corrupt");
+            }
+        }
+
+        Position position = new Position(dark, light, (flags & 1) != 0);
+        return new GameRecord(position, moves, movesCount, computerPiece, flags >> 3);
+    }
+
+    /**
+     * Returns the record in at most {@code 19 + MAX_MOVES} bytes
+     */
+    public byte[] encode() {
+        byte[] data = new byte[HEADER_SIZE + moves.length];
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+
+        data[0] = VERSION;
+        buffer.putLong(1, position.getDark());
+        buffer.putLong(9, position.getLight());
+        data[17] = (byte) ((position.isDarkToMove() ? 1 : 0) | (computerPiece + 1) << 1 | difficulty << 3);
+        data[18] = (byte) moves.length;
+        System.arraycopy(moves, 0, data, HEADER_SIZE, moves.length);
+
+        return data;
+    }
+
+    public Position getPosition() {
+        return position;
+    }
+
+    public int getMovesCount() {
+        return moves.length;
+    }
+
+    /**
+     * Returns the cell {@code y * 8 + x} of the specified move
+     */
+    public int getMove(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Returns the cell of the last move or -1 before the first move
+     */
+    public int getLastMove() {
+        return moves.length > 0 ? moves[moves.length - 1] : -1;
+    }
+
+    public int getComputerPiece() {
+        return computerPiece;
+    }
+
+    public int getDifficulty() {
+        return difficulty;
+    }
+}
@@ -0,0 +1,196 @@
+package net.dynart.reversi;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ * Book of opening moves. It is read straight from a memory-mapped file,
+ * so it takes no heap however big it is.
+ * <p>
+ * The file has a 12-byte header (magic, version and count of records)
+ * followed by 16-byte records sorted by key: the key of the position
+ * (long), the move (byte), a reserved byte, the score (short) and the
+ * play count (int). Positions are keyed by their canonical form among
+ * the 8 rotations and reflections of the board, and moves are stored in
+ * that form, so one record serves all the symmetric positions
+ *
+ * @see Board#setOpeningBook(OpeningBook)
+ * @see Symmetry
+ */
+public final class OpeningBook {
+
+    /**
+     * Moves scored at most this much worse than the best one are played
+     * too, in tenths of pieces
+     */
+    static final int SCORE_MARGIN = 10;
+
+    private static final int MAGIC = 0x5256424B;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 12;
+
+    private static final int RECORD_SIZE = 16;
+
+    private final ByteBuffer buffer;
+
+    private final int count;
+
+    /**
+     * Creates a book from the specified buffer, which holds the whole
+     * book file
+     */
+    public OpeningBook(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an opening book");
+        }
+        count = buffer.getInt(8);
+        if (count < 0 || (long) count * RECORD_SIZE > buffer.capacity() - HEADER_SIZE) {
+            throw new IOException("Opening book is truncated");
+        }
+    }
+
+    /**
+     * Maps the specified part of a file channel and creates a book from
+     * it. The channel can be closed then
+     */
+    public static OpeningBook map(FileChannel channel, long position, long size) throws IOException {
+        return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+    }
+
+    /**
+     * Maps the specified book file
+     */
+    public static OpeningBook open(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            return map(in.getChannel(), 0, in.length());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns count of records, one for every position and move
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns a book move of the player in the specified position, or -1
+     * if the position is not in the book. Of the moves within
+     * {@link #SCORE_MARGIN} of the best score one is picked at random,
+     * the more often played ones more likely
+     */
+    int getMove(long player, long opponent, Random random) {
+        int symmetry = Symmetry.canonical(player, opponent);
+        long key = key(Symmetry.transform(player, symmetry), Symmetry.transform(opponent, symmetry));
+
+        int first = findFirst(key);
+        if (first < 0) {
+            return -1;
+        }
+
+        int end = first;
+        int bestScore = Integer.MIN_VALUE;
+        while (end < count && keyAt(end) == key) {
+            bestScore = Math.max(bestScore, scoreAt(end));
+            end++;
+        }
+
+        long total = 0;
+        for (int i = first; i < end; i++) {
+            if (scoreAt(i) >= bestScore - SCORE_MARGIN) {
+                total += countAt(i);
+            }
+        }
+
+        long pick = (long) (random.nextDouble() * total);
+        for (int i = first; i < end; i++) {
+            if (scoreAt(i) >= bestScore - SCORE_MARGIN) {
+                pick -= countAt(i);
+                if (pick < 0) {
+                    return Symmetry.inverseSquare(moveAt(i), symmetry);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the first record of the key, or -1 if there is none
+     */
+    private int findFirst(long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keyAt(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < count && keyAt(low) == key ? low : -1;
+    }
+
+    private long keyAt(int record) {
+        return buffer.getLong(HEADER_SIZE + record * RECORD_SIZE);
+    }
+
+    private int moveAt(int record) {
+        return buffer.get(HEADER_SIZE + record * RECORD_SIZE + 8);
+    }
+
+    private int scoreAt(int record) {
+        return buffer.getShort(HEADER_SIZE + record * RECORD_SIZE + 10);
+    }
+
+    private int countAt(int record) {
+        return buffer.getInt(HEADER_SIZE + record * RECORD_SIZE + 12);
+    }
+
+    /**
+     * Writes a book file. The records must be sorted by key, moves are in
+     * the canonical form of the position, scores are in tenths of pieces
+     * for the player of the move
+     *
+     * @see Symmetry#canonical(long, long)
+     */
+    static void write(OutputStream out, long[] keys, int[] moves, int[] scores, int[] counts,
+            int recordCount) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            data.writeLong(keys[i]);
+            data.writeByte(moves[i]);
+            data.writeByte(0);
+            data.writeShort(scores[i]);
+            data.writeInt(counts[i]);
+        }
+        data.flush();
+    }
+
+    /**
+     * Returns the key of a position in its canonical form
+     */
+    static long key(long player, long opponent) {
+        long result = player * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(opponent * 0xC2B2AE3D27D4EB4FL, 31);
+        result = (result ^ (result >>> 33)) * 0xFF51AFD7ED558CCDL;
+        result = (result ^ (result >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return result ^ (result >>> 33);
+    }
+}
@@ -0,0 +1,426 @@
+package net.dynart.reversi;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Table-driven evaluation of positions. The board is covered by patterns
+ * (edges, diagonals, 2x5 corner blocks and 3x3 corners) in all their
+ * rotations and reflections. The cells of a pattern give a base-3 index
+ * (0 empty, 1 dark, 2 light, cell i is the digit of 3^i) and the value of
+ * the position is the sum of the weights of those indexes. Each game
+ * phase, chosen by the count of pieces, has its own weights. The
+ * orders of the cells of a pattern which a rotation or a reflection gives
+ * share their weight, so symmetric positions have the same value.
+ * <p>
+ * The weights are loaded once from a gzip stream, until then
+ * {@link #isLoaded()} returns false and {@link Board} uses its simple
+ * evaluation
+ *
+ * @see Board
+ */
+public final class PatternEvaluation {
+
+    /**
+     * Count of game phases, each one has its own weights
+     *
+     * @see #phase(int)
+     */
+    static final int PHASES = 6;
+
+    /**
+     * Cells of the patterns in one of their positions, the other
+     * positions are made by {@link #instancesOf(int[])}
+     */
+    static final int[][] FAMILIES = {
+            // edge
+            {0, 1, 2, 3, 4, 5, 6, 7},
+            // 3x3 corner
+            {0, 1, 2, 8, 9, 10, 16, 17, 18},
+            // 2x5 corner
+            {0, 1, 2, 3, 4, 8, 9, 10, 11, 12},
+            // diagonals
+            {0, 9, 18, 27, 36, 45, 54, 63},
+            {1, 10, 19, 28, 37, 46, 55},
+            {2, 11, 20, 29, 38, 47},
+            {3, 12, 21, 30, 39},
+            {4, 13, 22, 31}};
+
+    /**
+     * Weights are stored in this part of a value unit, so small values
+     * keep their precision when they are shared among patterns
+     */
+    static final int WEIGHT_SCALE = 16;
+
+    /**
+     * First bytes of the weights stream
+     */
+    private static final int MAGIC = 0x52565057;
+
+    /**
+     * Version of the weights stream format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Cells of every pattern position
+     */
+    static final int[][] INSTANCES;
+
+    /**
+     * Index into {@link #FAMILIES} of every pattern position
+     */
+    static final int[] INSTANCE_FAMILIES;
+
+    /**
+     * Pattern positions which every cell is part of
+     *
+     * @see #CELL_POWERS
+     */
+    static final int[][] CELL_INSTANCES = new int[64][];
+
+    /**
+     * Power of 3 of every cell in the patterns of {@link #CELL_INSTANCES},
+     * the index of a pattern changes by it when a dark piece is put on the
+     * cell, by twice as much for a light piece
+     */
+    static final int[][] CELL_POWERS = new int[64][];
+
+    /**
+     * Smallest index of every pattern index among the indexes of the same
+     * cells in the other orders which the symmetries of the pattern give,
+     * by family. It is null for a family without such symmetries. The
+     * weights of indexes with the same smallest index are equal
+     *
+     * @see #symmetrize(short[][][])
+     */
+    static final int[][] CANONICAL_INDEXES = new int[FAMILIES.length][];
+
+    static {
+        ArrayList<int[]> instances = new ArrayList<int[]>();
+        ArrayList<Integer> families = new ArrayList<Integer>();
+        for (int family = 0; family < FAMILIES.length; family++) {
+            for (int[] cells: instancesOf(FAMILIES[family])) {
+                instances.add(cells);
+                families.add(family);
+            }
+        }
+
+        INSTANCES = instances.toArray(new int[instances.size()][]);
+        INSTANCE_FAMILIES = new int[families.size()];
+        for (int i = 0; i < INSTANCE_FAMILIES.length; i++) {
+            INSTANCE_FAMILIES[i] = families.get(i);
+        }
+
+        for (int cell = 0; cell < 64; cell++) {
+            int count = 0;
+            for (int[] cells: INSTANCES) {
+                for (int instanceCell: cells) {
+                    if (instanceCell == cell) {
+                        count++;
+                    }
+                }
+            }
+
+            CELL_INSTANCES[cell] = new int[count];
+            CELL_POWERS[cell] = new int[count];
+            for (int i = 0, j = 0; i < INSTANCES.length; i++) {
+                for (int k = 0; k < INSTANCES[i].length; k++) {
+                    if (INSTANCES[i][k] == cell) {
+                        CELL_INSTANCES[cell][j] = i;
+                        CELL_POWERS[cell][j] = power3(k);
+                        j++;
+                    }
+                }
+            }
+        }
+
+        for (int family = 0; family < FAMILIES.length; family++) {
+            CANONICAL_INDEXES[family] = canonicalIndexesOf(FAMILIES[family]);
+        }
+    }
+
+    /**
+     * Weights by phase, family and pattern index, null until they are
+     * loaded
+     */
+    private static volatile short[][][] weights;
+
+    private PatternEvaluation() {
+    }
+
+    /**
+     * Loads the weights from a gzip stream in the format of
+     * {@link #write(OutputStream, short[][][])}. The stream is not closed
+     */
+    public static void load(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+
+        if (data.readInt() != MAGIC || data.readUnsignedShort() != VERSION) {
+            throw new IOException("Not a pattern weights stream");
+        }
+        if (data.readUnsignedByte() != PHASES || data.readUnsignedByte() != FAMILIES.length) {
+            throw new IOException("Pattern weights do not match the patterns");
+        }
+        for (int[] cells: FAMILIES) {
+            if (data.readUnsignedByte() != cells.length) {
+                throw new IOException("Pattern weights do not match the patterns");
+            }
+        }
+
+        short[][][] result = createWeights();
+        for (short[][] phaseWeights: result) {
+            for (short[] familyWeights: phaseWeights) {
+                for (int i = 0; i < familyWeights.length; i++) {
+                    familyWeights[i] = data.readShort();
+                }
+            }
+        }
+        symmetrize(result);
+
+        weights = result;
+    }
+
+    /**
+     * Sets the weights by phase, family and pattern index. They are made
+     * symmetric first
+     *
+     * @see #createWeights()
+     * @see #symmetrize(short[][][])
+     */
+    static void setWeights(short[][][] weights) {
+        symmetrize(weights);
+        PatternEvaluation.weights = weights;
+    }
+
+    /**
+     * Gives the pattern indexes with the same {@link #CANONICAL_INDEXES}
+     * value the mean of their weights
+     */
+    static void symmetrize(short[][][] weights) {
+        for (short[][] phaseWeights: weights) {
+            for (int family = 0; family < FAMILIES.length; family++) {
+                int[] canonical = CANONICAL_INDEXES[family];
+                if (canonical == null) {
+                    continue;
+                }
+
+                short[] familyWeights = phaseWeights[family];
+                int[] sums = new int[familyWeights.length];
+                int[] counts = new int[familyWeights.length];
+                for (int i = 0; i < familyWeights.length; i++) {
+                    sums[canonical[i]] += familyWeights[i];
+                    counts[canonical[i]]++;
+                }
+                for (int i = 0; i < familyWeights.length; i++) {
+                    familyWeights[i] = (short) Math.round((double) sums[canonical[i]] / counts[canonical[i]]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the weights as a gzip stream which {@link #load(InputStream)}
+     * reads. The stream is not closed
+     */
+    static void write(OutputStream out, short[][][] weights) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        DataOutputStream data = new DataOutputStream(gzip);
+
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeByte(PHASES);
+        data.writeByte(FAMILIES.length);
+        for (int[] cells: FAMILIES) {
+            data.writeByte(cells.length);
+        }
+
+        for (short[][] phaseWeights: weights) {
+            for (short[] familyWeights: phaseWeights) {
+                for (short weight: familyWeights) {
+                    data.writeShort(weight);
+                }
+            }
+        }
+
+        data.flush();
+        gzip.finish();
+    }
+
+    /**
+     * Returns empty weights arrays by phase, family and pattern index
+     */
+    static short[][][] createWeights() {
+        short[][][] result = new short[PHASES][FAMILIES.length][];
+        for (short[][] phaseWeights: result) {
+            for (int family = 0; family < FAMILIES.length; family++) {
+                phaseWeights[family] = new short[power3(FAMILIES[family].length)];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines whether the weights are loaded
+     */
+    public static boolean isLoaded() {
+        return weights != null;
+    }
+
+    /**
+     * Returns the phase of a position with the specified count of pieces
+     */
+    static int phase(int piecesCount) {
+        return Math.min((piecesCount - 4) * PHASES / 60, PHASES - 1);
+    }
+
+    /**
+     * Returns value of the position for the dark player. The weights
+     * must be loaded
+     */
+    static int evaluate(long dark, long light, int piecesCount) {
+        short[][] phaseWeights = weights[phase(piecesCount)];
+
+        int result = 0;
+        for (int i = 0; i < INSTANCES.length; i++) {
+            result += phaseWeights[INSTANCE_FAMILIES[i]][index(INSTANCES[i], dark, light)];
+        }
+        return result / WEIGHT_SCALE;
+    }
+
+    /**
+     * Returns value of the position for the dark player from the indexes
+     * of all pattern positions. The weights must be loaded
+     *
+     * @see #computeIndexes(long, long, int[])
+     */
+    static int evaluate(int[] indexes, int piecesCount) {
+        short[][] phaseWeights = weights[phase(piecesCount)];
+
+        int result = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            result += phaseWeights[INSTANCE_FAMILIES[i]][indexes[i]];
+        }
+        return result / WEIGHT_SCALE;
+    }
+
+    /**
+     * Stores the indexes of all pattern positions into the specified
+     * array. They can be updated by {@link #CELL_INSTANCES} and
+     * {@link #CELL_POWERS} when pieces are put or rotated
+     */
+    static void computeIndexes(long dark, long light, int[] indexes) {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            indexes[i] = index(INSTANCES[i], dark, light);
+        }
+    }
+
+    /**
+     * Returns the base-3 index of the specified pattern cells
+     */
+    static int index(int[] cells, long dark, long light) {
+        int result = 0;
+        for (int i = cells.length - 1; i >= 0; i--) {
+            int cell = cells[i];
+            result = result * 3 + (int) ((dark >>> cell) & 1) + ((int) ((light >>> cell) & 1) << 1);
+        }
+        return result;
+    }
+
+    /**
+     * Returns 3 raised to the specified power
+     */
+    static int power3(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 3;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the {@link #CANONICAL_INDEXES} of the specified pattern
+     * cells, or null if no symmetry maps the cells onto themselves in
+     * another order
+     */
+    private static int[] canonicalIndexesOf(int[] cells) {
+        // Orders of the cells which the symmetries give, order[i] is the
+        // cell which cell i goes to
+        ArrayList<int[]> orders = new ArrayList<int[]>();
+        for (int symmetry = 1; symmetry < Symmetry.COUNT; symmetry++) {
+            int[] order = new int[cells.length];
+            boolean same = true;
+            boolean identity = true;
+            for (int i = 0; i < cells.length && same; i++) {
+                int cell = Symmetry.transformSquare(cells[i], symmetry);
+                order[i] = -1;
+                for (int j = 0; j < cells.length; j++) {
+                    if (cells[j] == cell) {
+                        order[i] = j;
+                    }
+                }
+                same = order[i] >= 0;
+                identity &= order[i] == i;
+            }
+            if (same && !identity) {
+                orders.add(order);
+            }
+        }
+        if (orders.isEmpty()) {
+            return null;
+        }
+
+        // With the identity the orders form a group, so the smallest of the
+        // indexes they give is the same for all of them
+        int[] result = new int[power3(cells.length)];
+        int[] digits = new int[cells.length];
+        for (int index = 0; index < result.length; index++) {
+            for (int i = 0, rest = index; i < cells.length; i++, rest /= 3) {
+                digits[i] = rest % 3;
+            }
+
+            int smallest = index;
+            for (int[] order: orders) {
+                int other = 0;
+                for (int i = cells.length - 1; i >= 0; i--) {
+                    other = other * 3 + digits[order[i]];
+                }
+                smallest = Math.min(smallest, other);
+            }
+            result[index] = smallest;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the different positions of the specified pattern cells on
+     * the board: all rotations and reflections, the ones that cover the
+     * same cells only once
+     */
+    private static ArrayList<int[]> instancesOf(int[] cells) {
+        ArrayList<int[]> result = new ArrayList<int[]>();
+        ArrayList<Long> masks = new ArrayList<Long>();
+
+        for (int symmetry = 0; symmetry < Symmetry.COUNT; symmetry++) {
+            int[] instance = new int[cells.length];
+            long mask = 0;
+            for (int i = 0; i < cells.length; i++) {
+                instance[i] = Symmetry.transformSquare(cells[i], symmetry);
+                mask |= 1L << instance[i];
+            }
+
+            if (!masks.contains(mask)) {
+                masks.add(mask);
+                result.add(instance);
+            }
+        }
+        return result;
+    }
+}
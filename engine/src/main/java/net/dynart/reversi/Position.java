@@ -0,0 +1,69 @@
+package net.dynart.reversi;
+
+/**
+ * Immutable copy of the pieces on the board and the player to move. It
+ * can be handed over between threads
+ *
+ * @see Board#getPosition()
+ * @see Board#setPosition(Position)
+ */
+public final class Position {
+
+    private final long dark;
+
+    private final long light;
+
+    private final boolean darkToMove;
+
+    /**
+     * Creates a position from masks of dark and light pieces, bit
+     * {@code y * 8 + x} is the cell (x, y)
+     */
+    public Position(long dark, long light, boolean darkToMove) {
+        this.dark = dark;
+        this.light = light;
+        this.darkToMove = darkToMove;
+    }
+
+    /**
+     * Returns mask of the dark pieces
+     */
+    public long getDark() {
+        return dark;
+    }
+
+    /**
+     * Returns mask of the light pieces
+     */
+    public long getLight() {
+        return light;
+    }
+
+    /**
+     * Determines piece color of current move
+     */
+    public boolean isDarkToMove() {
+        return darkToMove;
+    }
+
+    /**
+     * Returns a piece on the specified board position
+     *
+     * @see Board#PIECE_EMPTY
+     * @see Board#PIECE_DARK
+     * @see Board#PIECE_LIGHT
+     */
+    public int getPiece(int x, int y) {
+        if (x < 0 || x > 7 || y < 0 || y > 7) {
+            return Board.PIECE_EMPTY;
+        }
+        long mask = 1L << (y * 8 + x);
+        if ((dark & mask) != 0) {
+            return Board.PIECE_DARK;
+        }
+        if ((light & mask) != 0) {
+            return Board.PIECE_LIGHT;
+        }
+        return Board.PIECE_EMPTY;
+    }
+}
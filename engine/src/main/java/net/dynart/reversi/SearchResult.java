@@ -0,0 +1,197 @@
+package net.dynart.reversi;
+
+/**
+ * Immutable result of a computer calculation: the move and statistics of
+ * how it was found. Counting them costs a few increments per position,
+ * so they are always collected. The counters are the sums of all search
+ * threads
+ *
+ * @see Board#search()
+ */
+public final class SearchResult {
+
+    /**
+     * How the move was found
+     */
+    public static enum Source {
+        /**
+         * The only legal move, nothing was calculated
+         */
+        ONLY_MOVE,
+        /**
+         * Move of the opening book, nothing was calculated
+         */
+        OPENING_BOOK,
+        /**
+         * Alpha-beta search to a depth
+         */
+        SEARCH,
+        /**
+         * Exact or win/loss/draw calculation to the end of the game
+         */
+        ENDGAME_SOLVER
+    }
+
+    private final Coord move;
+
+    private final Source source;
+
+    private final int score;
+
+    private final int depth;
+
+    private final long nodes;
+
+    private final long leaves;
+
+    private final long transpositionProbes;
+
+    private final long transpositionHits;
+
+    private final long transpositionCollisions;
+
+    private final long cutoffs;
+
+    private final long elapsedNanos;
+
+    private final Coord[] principalVariation;
+
+    SearchResult(Coord move, Source source, int score, int depth, long nodes, long leaves,
+            long transpositionProbes, long transpositionHits, long transpositionCollisions, long cutoffs, long elapsedNanos, Coord[] principalVariation) {
+        this.move = move;
+        this.source = source;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.leaves = leaves;
+        this.transpositionProbes = transpositionProbes;
+        this.transpositionHits = transpositionHits;
+        this.transpositionCollisions = transpositionCollisions;
+        this.cutoffs = cutoffs;
+        this.elapsedNanos = elapsedNanos;
+        this.principalVariation = principalVariation;
+    }
+
+    /**
+     * Returns the move to play, or null if the calculation was stopped
+     */
+    public Coord getMove() {
+        return move;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    /**
+     * Returns value of the move for the player to move. It is a difference
+     * of pieces for {@link Source#ENDGAME_SOLVER} (only its sign in a
+     * win/loss/draw calculation), otherwise a value of the evaluation.
+     * It is 0 when nothing was calculated
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the depth of the last completed search step, the count of
+     * empty cells for {@link Source#ENDGAME_SOLVER}
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns count of searched positions, the leaves and the positions of
+     * the endgame solver included
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns count of positions evaluated at the end of the depth or of
+     * the game
+     */
+    public long getLeaves() {
+        return leaves;
+    }
+
+    /**
+     * Returns count of lookups in the transposition table
+     */
+    public long getTranspositionProbes() {
+        return transpositionProbes;
+    }
+
+    /**
+     * Returns count of positions found in the transposition table
+     */
+    public long getTranspositionHits() {
+        return transpositionHits;
+    }
+
+    /**
+     * Returns count of lookups which found another position in the slot
+     */
+    public long getTranspositionCollisions() {
+        return transpositionCollisions;
+    }
+
+    /**
+     * Returns part of the lookups which found the position
+     */
+    public double getTranspositionHitRate() {
+        return transpositionProbes == 0 ? 0 : (double) transpositionHits / transpositionProbes;
+    }
+
+    /**
+     * Returns count of beta cutoffs
+     */
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * Returns time of the calculation in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns count of searched positions per second
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1000000000L / elapsedNanos;
+    }
+
+    /**
+     * Returns the expected moves of both players from the move on, as far
+     * as the transposition table knows them. It ends at a pass. For
+     * {@link Source#ENDGAME_SOLVER} it is only the move
+     */
+    public Coord[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(source).append(' ').append(move == null ? "none" : toText(move));
+        result.append(" score ").append(score).append(" depth ").append(depth);
+        result.append(" nodes ").append(nodes).append(" leaves ").append(leaves);
+        result.append(" tt probes ").append(transpositionProbes).append(" hits ").append(transpositionHits);
+        result.append(" collisions ").append(transpositionCollisions).append(" cutoffs ").append(cutoffs);
+        result.append(' ').append(elapsedNanos / 1000).append(" us ").append(getNodesPerSecond()).append(" nps");
+        result.append(" pv");
+        for (Coord coord: principalVariation) {
+            result.append(' ').append(toText(coord));
+        }
+        return result.toString();
+    }
+
+    private static String toText(Coord coord) {
+        return (char) ('a' + coord.x) + "" + (coord.y + 1);
+    }
+}
@@ -0,0 +1,73 @@
+package net.dynart.reversi;
+
+/**
+ * Settings of the computer calculations of one board. A board without
+ * its own settings uses the static settings of {@link Board}, so boards
+ * with different settings can calculate at the same time
+ *
+ * @see Board#setSettings(SearchSettings)
+ */
+public class SearchSettings {
+
+    /**
+     * @see Board#maxRunDepth
+     */
+    public int maxRunDepth;
+
+    /**
+     * @see Board#maxRunTime
+     */
+    public long maxRunTime;
+
+    /**
+     * @see Board#maxRunNodes
+     */
+    public long maxRunNodes;
+
+    /**
+     * @see Board#endgameEmpties
+     */
+    public int endgameEmpties;
+
+    /**
+     * @see Board#endgameWinLossDrawEmpties
+     */
+    public int endgameWinLossDrawEmpties;
+
+    /**
+     * @see Board#maxEndgameNodes
+     */
+    public long maxEndgameNodes;
+
+    /**
+     * @see Board#searchThreads
+     */
+    public int searchThreads;
+
+    /**
+     * @see Board#useOpeningBook
+     */
+    public boolean useOpeningBook;
+
+    /**
+     * Determines whether positions are evaluated by
+     * {@link PatternEvaluation} when its weights are loaded, otherwise
+     * by the simple evaluation of the board
+     */
+    public boolean usePatternEvaluation = true;
+
+    /**
+     * Creates settings with the current values of the static settings
+     * of {@link Board}
+     */
+    public SearchSettings() {
+        maxRunDepth = Board.maxRunDepth;
+        maxRunTime = Board.maxRunTime;
+        maxRunNodes = Board.maxRunNodes;
+        endgameEmpties = Board.endgameEmpties;
+        endgameWinLossDrawEmpties = Board.endgameWinLossDrawEmpties;
+        maxEndgameNodes = Board.maxEndgameNodes;
+        searchThreads = Board.searchThreads;
+        useOpeningBook = Board.useOpeningBook;
+    }
+}
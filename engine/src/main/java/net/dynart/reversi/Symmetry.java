@@ -0,0 +1,169 @@
+package net.dynart.reversi;
+
+/**
+ * The 8 rotations and reflections of the board on masks of pieces (bit
+ * {@code y * 8 + x} is the cell (x, y)). A symmetry is a number from 0 to
+ * 7: bit 0 mirrors the columns, bit 1 the rows, bit 2 then swaps rows and
+ * columns. 0 leaves the board as it is.
+ * <p>
+ * The canonical form of a position is its smallest form among the 8, so
+ * tables keyed by it find all the symmetric positions. A move found in the
+ * canonical form is mapped back by {@link #inverseSquare(int, int)}
+ *
+ * @see OpeningBook
+ */
+public final class Symmetry {
+
+    /**
+     * Count of the symmetries
+     */
+    public static final int COUNT = 8;
+
+    /**
+     * The symmetry which leaves the board as it is
+     */
+    public static final int IDENTITY = 0;
+
+    private Symmetry() {
+    }
+
+    /**
+     * Returns the mask rotated or reflected by the specified symmetry
+     */
+    public static long transform(long bits, int symmetry) {
+        if ((symmetry & 3) == 3) {
+            // Both mirrors turn the board by 180 degrees
+            bits = Long.reverse(bits);
+        } else if ((symmetry & 1) != 0) {
+            bits = mirrorColumns(bits);
+        } else if ((symmetry & 2) != 0) {
+            bits = Long.reverseBytes(bits);
+        }
+        if ((symmetry & 4) != 0) {
+            bits = transpose(bits);
+        }
+        return bits;
+    }
+
+    /**
+     * Returns the symmetry which gives the canonical form of the position:
+     * the smallest player mask, then the smallest opponent mask, and of
+     * equal forms the smallest symmetry. The opponent masks are only
+     * transformed for the ties of the player mask
+     */
+    public static int canonical(long player, long opponent) {
+        long mirrored = mirrorColumns(player);
+        long flipped = Long.reverseBytes(player);
+        long turned = Long.reverse(player);
+
+        long best = player;
+        int result = IDENTITY;
+        int ties = 1;
+        for (int symmetry = 1; symmetry < COUNT; symmetry++) {
+            long bits;
+            switch (symmetry & 3) {
+                case 0: bits = player; break;
+                case 1: bits = mirrored; break;
+                case 2: bits = flipped; break;
+                default: bits = turned; break;
+            }
+            if (symmetry >= 4) {
+                bits = transpose(bits);
+            }
+
+            if (bits < best) {
+                best = bits;
+                result = symmetry;
+                ties = 1 << symmetry;
+            } else if (bits == best) {
+                ties |= 1 << symmetry;
+            }
+        }
+
+        if ((ties & (ties - 1)) == 0) {
+            return result;
+        }
+
+        long bestOpponent = transform(opponent, result);
+        for (int symmetry = result + 1; symmetry < COUNT; symmetry++) {
+            if ((ties & (1 << symmetry)) != 0) {
+                long bits = transform(opponent, symmetry);
+                if (bits < bestOpponent) {
+                    bestOpponent = bits;
+                    result = symmetry;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the symmetries which leave the position as it is, as a mask
+     * with bit {@code 1 << symmetry} set for each. {@link #IDENTITY} is
+     * always set
+     */
+    public static int invariants(long player, long opponent) {
+        int result = 1 << IDENTITY;
+        for (int symmetry = 1; symmetry < COUNT; symmetry++) {
+            if (transform(player, symmetry) == player && transform(opponent, symmetry) == opponent) {
+                result |= 1 << symmetry;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cell (y * 8 + x) which the specified cell goes to by
+     * {@link #transform(long, int)}
+     */
+    public static int transformSquare(int square, int symmetry) {
+        int x = square & 7;
+        int y = square >> 3;
+        if ((symmetry & 1) != 0) {
+            x = 7 - x;
+        }
+        if ((symmetry & 2) != 0) {
+            y = 7 - y;
+        }
+        return (symmetry & 4) != 0 ? x * 8 + y : y * 8 + x;
+    }
+
+    /**
+     * Returns the symmetry which takes back the specified one
+     */
+    public static int inverse(int symmetry) {
+        // Mirrors are their own inverses, but after the swap of rows and
+        // columns the column mirror works as a row mirror and vice versa
+        return (symmetry & 4) != 0 ? (symmetry & 4) | ((symmetry & 1) << 1) | ((symmetry & 2) >> 1) :
+                symmetry;
+    }
+
+    /**
+     * Returns the cell which goes to the specified cell by
+     * {@link #transform(long, int)}
+     */
+    public static int inverseSquare(int square, int symmetry) {
+        return transformSquare(square, inverse(symmetry));
+    }
+
+    /**
+     * Mirrors the columns: a1 goes to h1
+     */
+    private static long mirrorColumns(long bits) {
+        bits = ((bits >>> 1) & 0x5555555555555555L) | ((bits & 0x5555555555555555L) << 1);
+        bits = ((bits >>> 2) & 0x3333333333333333L) | ((bits & 0x3333333333333333L) << 2);
+        return ((bits >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((bits & 0x0F0F0F0F0F0F0F0FL) << 4);
+    }
+
+    /**
+     * Swaps rows and columns: the a1-h8 diagonal stays, b1 goes to a2
+     */
+    private static long transpose(long bits) {
+        long t = 0x0F0F0F0F00000000L & (bits ^ (bits << 28));
+        bits ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (bits ^ (bits << 14));
+        bits ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (bits ^ (bits << 7));
+        return bits ^ t ^ (t >>> 7);
+    }
+}
@@ -0,0 +1,132 @@
+package net.dynart.reversi;
+
+/**
+ * Fixed-size hash table of search results, indexed by the Zobrist key of
+ * a position. All memory is allocated in the constructor, an entry takes
+ * 16 bytes: the full key and a packed value with the score, the bound
+ * type, the searched depth and the best move.
+ * <p>
+ * The table can be shared by several calculation threads without locks.
+ * The key is stored XORed with the value, so an entry which was torn by
+ * two threads writing it at the same time does not match any key and is
+ * ignored. The table counts nothing itself, every calculation thread
+ * counts its own lookups
+ *
+ * @see Board
+ */
+public class TranspositionTable {
+
+    /**
+     * Bound type of an entry whose score is the exact value
+     */
+    static final int BOUND_EXACT = 0;
+
+    /**
+     * Bound type of an entry whose score is a lower bound (beta cutoff)
+     */
+    static final int BOUND_LOWER = 1;
+
+    /**
+     * Bound type of an entry whose score is an upper bound (no move
+     * reached alpha)
+     */
+    static final int BOUND_UPPER = 2;
+
+    /**
+     * Move value of an entry without a best move
+     */
+    static final int NO_MOVE = 0xFF;
+
+    /**
+     * Size of one entry in bytes
+     */
+    private static final int ENTRY_SIZE = 16;
+
+    private final long[] keys;
+
+    private final long[] values;
+
+    private final int mask;
+
+    /**
+     * Creates a table which takes at most the specified count of bytes.
+     * The count of entries is rounded down to a power of two
+     */
+    public TranspositionTable(int sizeInBytes) {
+        int entries = Integer.highestOneBit(Math.max(sizeInBytes / ENTRY_SIZE, 1));
+        keys = new long[entries];
+        values = new long[entries];
+        mask = entries - 1;
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear() {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = 0;
+            values[i] = 0;
+        }
+    }
+
+    /**
+     * Returns count of entries
+     */
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the packed value stored for the key or 0 if there is none
+     *
+     * @see #score(long)
+     * @see #depth(long)
+     * @see #bound(long)
+     * @see #move(long)
+     */
+    long probe(long key) {
+        int index = (int) key & mask;
+        long value = values[index];
+        if ((keys[index] ^ value) == key) {
+            return value;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns true if the slot of the key holds an entry. After a failed
+     * {@link #probe(long)} it is another position
+     */
+    boolean isOccupied(long key) {
+        return keys[(int) key & mask] != 0;
+    }
+
+    /**
+     * Stores a search result, the slot is always replaced
+     */
+    void store(long key, int score, int depth, int bound, int move) {
+        int index = (int) key & mask;
+        // Bit 40 is a marker set in every stored entry, it keeps the value
+        // different from 0, which probe() returns for a missing entry
+        long value = (score & 0xFFFFL) | (long) depth << 16 | (long) bound << 24 |
+                (long) move << 32 | 1L << 40;
+        values[index] = value;
+        keys[index] = key ^ value;
+    }
+
+    static int score(long value) {
+        return (short) value;
+    }
+
+    static int depth(long value) {
+        return (int) (value >>> 16) & 0xFF;
+    }
+
+    static int bound(long value) {
+        return (int) (value >>> 24) & 0x3;
+    }
+
+    static int move(long value) {
+        return (int) (value >>> 32) & 0xFF;
+    }
+}
@@ -0,0 +1,161 @@
+package net.dynart.reversi;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the results of {@link EndgameSolver} against a plain minimax
+ * search to the end of the game
+ */
+public class EndgameSolverTest {
+
+    @Test
+    public void exactScore() {
+        EndgameSolver solver = new EndgameSolver();
+        for (long[] position: createPositions(6)) {
+            solver.setLimits(0, 0);
+            assertEquals(minimax(position[0], position[1]),
+                    solver.solve(position[0], position[1], -EndgameSolver.INFINITY, EndgameSolver.INFINITY));
+        }
+    }
+
+    @Test
+    public void winLossDraw() {
+        EndgameSolver solver = new EndgameSolver();
+        for (long[] position: createPositions(7)) {
+            solver.setLimits(0, 0);
+            int score = minimax(position[0], position[1]);
+            assertWindow(score, -1, 1, solver.solve(position[0], position[1], -1, 1));
+        }
+    }
+
+    @Test
+    public void narrowWindows() {
+        EndgameSolver solver = new EndgameSolver();
+        for (long[] position: createPositions(8)) {
+            int score = minimax(position[0], position[1]);
+            for (int alpha = score - 3; alpha <= score + 2; alpha++) {
+                for (int width = 1; width <= 2; width++) {
+                    solver.setLimits(0, 0);
+                    assertWindow(score, alpha, alpha + width,
+                            solver.solve(position[0], position[1], alpha, alpha + width));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void nodeBudgetFallsBackToSearch() {
+        Random random = new Random(9);
+        Board board = new Board(1 << 16);
+        SearchSettings settings = new SearchSettings();
+        settings.maxRunDepth = 3;
+        settings.maxRunTime = 0;
+        settings.maxRunNodes = 0;
+        settings.endgameEmpties = 12;
+        settings.endgameWinLossDrawEmpties = 0;
+        settings.searchThreads = 1;
+        settings.useOpeningBook = false;
+        board.setSettings(settings);
+
+        int count = 0;
+        for (int game = 0; game < 20; game++) {
+            board.setStartPosition();
+            while (board.getGameResult() == Board.GameResult.UNKNOWN &&
+                    64 - board.getDarkPiecesCount() - board.getLightPiecesCount() > 12) {
+                Coord[] moves = board.getMoves();
+                board.makeMove(moves[random.nextInt(moves.length)]);
+            }
+            if (board.getGameResult() != Board.GameResult.UNKNOWN || board.getMoves().length < 2) {
+                continue;
+            }
+
+            settings.maxEndgameNodes = 0;
+            SearchResult solved = board.search();
+            assertEquals(SearchResult.Source.ENDGAME_SOLVER, solved.getSource());
+            // The solver checks its limits every 1024 positions or so
+            if (solved.getNodes() <= 1024) {
+                continue;
+            }
+
+            settings.maxEndgameNodes = 1024;
+            SearchResult result = board.search();
+            assertEquals(SearchResult.Source.SEARCH, result.getSource());
+            assertEquals(3, result.getDepth());
+            assertNotNull(result.getMove());
+            count++;
+        }
+        assertTrue(count > 0);
+    }
+
+    /**
+     * Checks that the result is the score inside of the window, and a
+     * bound on the side of the score outside of it
+     */
+    private static void assertWindow(int score, int alpha, int beta, int result) {
+        String message = "score " + score + " window " + alpha + ", " + beta + " result " + result;
+        if (score <= alpha) {
+            assertTrue(message, result <= alpha);
+        } else if (score >= beta) {
+            assertTrue(message, result >= beta);
+        } else {
+            assertEquals(message, score, result);
+        }
+    }
+
+    /**
+     * Returns player and opponent masks of positions with at most 10 empty
+     * cells from random games
+     */
+    private static long[][] createPositions(long seed) {
+        Random random = new Random(seed);
+        Board board = new Board(1 << 10);
+        long[][] result = new long[30][];
+        int count = 0;
+        while (count < result.length) {
+            board.setStartPosition();
+            int empties = 5 + random.nextInt(6);
+            while (board.getGameResult() == Board.GameResult.UNKNOWN &&
+                    64 - board.getDarkPiecesCount() - board.getLightPiecesCount() > empties) {
+                Coord[] moves = board.getMoves();
+                board.makeMove(moves[random.nextInt(moves.length)]);
+            }
+            if (board.getGameResult() != Board.GameResult.UNKNOWN) {
+                continue;
+            }
+
+            Position position = board.getPosition();
+            result[count++] = position.isDarkToMove() ?
+                    new long[] {position.getDark(), position.getLight()} :
+                    new long[] {position.getLight(), position.getDark()};
+        }
+        return result;
+    }
+
+    /**
+     * Returns the final difference of pieces for the player to move with
+     * perfect play, without any pruning
+     */
+    private static int minimax(long player, long opponent) {
+        long moves = BitBoard.getMoves(player, opponent);
+        if (moves == 0) {
+            if (BitBoard.getMoves(opponent, player) == 0) {
+                return Long.bitCount(player) - Long.bitCount(opponent);
+            }
+            return -minimax(opponent, player);
+        }
+
+        int result = -EndgameSolver.INFINITY;
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+
+            long flips = BitBoard.getFlips(square, player, opponent);
+            result = Math.max(result, -minimax(opponent & ~flips, player | flips | (1L << square)));
+        }
+        return result;
+    }
+}
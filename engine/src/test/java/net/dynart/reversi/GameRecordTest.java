@@ -0,0 +1,89 @@
+package net.dynart.reversi;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a {@link GameRecord} survives encoding and that broken data
+ * is rejected
+ */
+public class GameRecordTest {
+
+    @Test
+    public void roundTrip() throws IOException {
+        Board board = new Board(1 << 10);
+        board.setStartPosition();
+
+        int[] moves = new int[GameRecord.MAX_MOVES];
+        int count = 0;
+        Coord[] buffer = new Coord[64];
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = new Coord(0, 0);
+        }
+        while (count < 20 && board.getMoves(buffer) > 0) {
+            Coord move = buffer[count % board.getMoves(buffer)];
+            moves[count++] = move.y * 8 + move.x;
+            board.makeMove(move);
+        }
+
+        GameRecord record = new GameRecord(board.getPosition(), moves, count, Board.PIECE_LIGHT, 2);
+        byte[] data = record.encode();
+        assertEquals(19 + count, data.length);
+
+        GameRecord decoded = GameRecord.decode(data);
+        assertEquals(board.getPosition().getDark(), decoded.getPosition().getDark());
+        assertEquals(board.getPosition().getLight(), decoded.getPosition().getLight());
+        assertEquals(board.isDark(), decoded.getPosition().isDarkToMove());
+        assertEquals(Board.PIECE_LIGHT, decoded.getComputerPiece());
+        assertEquals(2, decoded.getDifficulty());
+        assertEquals(count, decoded.getMovesCount());
+        for (int i = 0; i < count; i++) {
+            assertEquals(moves[i], decoded.getMove(i));
+        }
+        assertEquals(moves[count - 1], decoded.getLastMove());
+    }
+
+    @Test
+    public void noMoves() throws IOException {
+        Position position = new Position(0x0000000810000000L, 0x0000001008000000L, false);
+        GameRecord decoded = GameRecord.decode(new GameRecord(position, new int[0], 0, Board.PIECE_EMPTY, 0).encode());
+
+        assertEquals(-1, decoded.getLastMove());
+        assertEquals(Board.PIECE_EMPTY, decoded.getComputerPiece());
+        assertFalse(decoded.getPosition().isDarkToMove());
+    }
+
+    @Test
+    public void brokenData() {
+        Position position = new Position(0x0000000810000000L, 0x0000001008000000L, true);
+        byte[] data = new GameRecord(position, new int[] {19}, 1, Board.PIECE_DARK, 1).encode();
+
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertRejected(truncated);
+
+        byte[] version = data.clone();
+        version[0]++;
+        assertRejected(version);
+
+        byte[] overlap = data.clone();
+        overlap[1] = overlap[9] = 1;
+        assertRejected(overlap);
+
+        byte[] cell = data.clone();
+        cell[19] = 64;
+        assertRejected(cell);
+    }
+
+    private static void assertRejected(byte[] data) {
+        try {
+            GameRecord.decode(data);
+            fail("Broken data was accepted");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
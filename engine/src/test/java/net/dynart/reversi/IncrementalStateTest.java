@@ -0,0 +1,38 @@
+package net.dynart.reversi;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the pattern indexes, the counts of pieces and the key which
+ * the calculation updates on make and undo are the same as the ones
+ * computed from scratch
+ */
+public class IncrementalStateTest {
+
+    @Test
+    public void startPosition() {
+        Board board = new Board(1 << 10);
+        assertTrue(board.checkIncrementalState(5));
+    }
+
+    @Test
+    public void randomPositions() {
+        Random random = new Random(10);
+        Board board = new Board(1 << 10);
+        for (int game = 0; game < 20; game++) {
+            board.setStartPosition();
+            for (int ply = 0; board.getGameResult() == Board.GameResult.UNKNOWN; ply++) {
+                if (ply % 8 == 4) {
+                    assertTrue("game " + game + " ply " + ply, board.checkIncrementalState(3));
+                }
+
+                Coord[] moves = board.getMoves();
+                board.makeMove(moves[random.nextInt(moves.length)]);
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package net.dynart.reversi;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds the {@link OpeningBook} of the application:
+ * <pre>
+ * OpeningBookBuilder [file [games | game records file]]
+ * </pre>
+ * The default file is app/src/main/res/raw/book.bin. The games are either
+ * played by the computer against itself (3000 by default, which takes
+ * about 15 minutes) or read from a text file with one game per line in
+ * the usual notation, for example "f5d6c3d3c4". Passes are not written.
+ * <p>
+ * The first {@link #BOOK_PLIES} moves of every game are counted by
+ * position, moves played less than {@link #MIN_COUNT} times are left out.
+ * The positions at the ends of the book lines are valued by a search of
+ * {@link #LEAF_DEPTH}, and a move gets the negamax value of the lines
+ * after it as score. So a bad move, which the random moves of the
+ * computer's games bring into the book, gets a bad score and is not
+ * played
+ */
+public class OpeningBookBuilder {
+
+    /**
+     * Count of moves of a game which go into the book
+     */
+    private static final int BOOK_PLIES = 14;
+
+    /**
+     * Least count of games of a move in the book
+     */
+    private static final int MIN_COUNT = 3;
+
+    /**
+     * Part of the book moves which are random in the computer's games,
+     * so the book covers more than one line
+     */
+    private static final double RANDOM_MOVE_RATE = 0.25;
+
+    /**
+     * Depth of the searches which value the positions at the ends of the
+     * book lines
+     */
+    private static final int LEAF_DEPTH = 8;
+
+    /**
+     * Position of the book in its canonical form, with the count of games
+     * of every move
+     */
+    private static class BookPosition {
+        long player;
+        long opponent;
+        boolean dark;
+        final int[] counts = new int[64];
+    }
+
+    /**
+     * Positions of the counted games by key
+     */
+    private final Map<Long, BookPosition> positions = new HashMap<Long, BookPosition>();
+
+    /**
+     * Values of the positions for the player to move in tenths of pieces,
+     * by key
+     *
+     * @see #getValue(long, long, boolean)
+     */
+    private final Map<Long, Integer> values = new HashMap<Long, Integer>();
+
+    /**
+     * Board of the searches at the ends of the book lines
+     */
+    private Board leafBoard;
+
+    public static void main(String[] args) throws IOException {
+        String fileName = args.length > 0 ? args[0] : "app/src/main/res/raw/book.bin";
+        String source = args.length > 1 ? args[1] : "3000";
+
+        // The games are played with the evaluation of the application
+        File weights = new File("app/src/main/res/raw/eval_weights.gz");
+        if (weights.exists()) {
+            InputStream in = new FileInputStream(weights);
+            try {
+                PatternEvaluation.load(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        if (source.matches("\\d+")) {
+            builder.play(Integer.parseInt(source), new Random(1));
+        } else {
+            builder.read(source);
+        }
+
+        OutputStream out = new FileOutputStream(fileName);
+        try {
+            System.out.println(builder.write(out) + " records");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Plays the specified count of games of the computer against itself
+     */
+    void play(int games, Random random) {
+        Board.maxRunTime = 0;
+        Board.maxRunNodes = 0;
+        Board.maxRunDepth = 4;
+        Board.endgameEmpties = 14;
+        Board.endgameWinLossDrawEmpties = 0;
+        Board.searchThreads = 1;
+
+        Board board = new Board();
+        ArrayList<Coord> moves = new ArrayList<Coord>();
+        for (int game = 0; game < games; game++) {
+            board.setStartPosition();
+            moves.clear();
+
+            while (board.getGameResult() == Board.GameResult.UNKNOWN) {
+                Coord move;
+                if (moves.size() < BOOK_PLIES && random.nextDouble() < RANDOM_MOVE_RATE) {
+                    Coord[] legalMoves = board.getMoves();
+                    move = legalMoves[random.nextInt(legalMoves.length)];
+                } else {
+                    move = board.run();
+                }
+                board.makeMove(move);
+                moves.add(move);
+            }
+            add(moves);
+
+            if ((game + 1) % 100 == 0) {
+                System.out.println((game + 1) + " games, " + positions.size() + " positions");
+            }
+        }
+    }
+
+    /**
+     * Reads games from a text file, one game per line
+     */
+    void read(String fileName) throws IOException {
+        BufferedReader in = new BufferedReader(new FileReader(fileName));
+        try {
+            ArrayList<Coord> moves = new ArrayList<Coord>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim().toLowerCase();
+
+                moves.clear();
+                for (int i = 0; i + 1 < line.length(); i += 2) {
+                    int x = line.charAt(i) - 'a';
+                    int y = line.charAt(i + 1) - '1';
+                    if (x < 0 || x > 7 || y < 0 || y > 7) {
+                        break;
+                    }
+                    moves.add(new Coord(x, y));
+                }
+                add(moves);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Counts the first moves of a game, a game with an illegal move is
+     * left out
+     */
+    private void add(ArrayList<Coord> moves) {
+        Board board = new Board(1 << 10);
+        for (Coord move: moves) {
+            if (!board.makeMove(move)) {
+                return;
+            }
+        }
+
+        board.setStartPosition();
+        for (int i = 0; i < moves.size() && i < BOOK_PLIES; i++) {
+            Position position = board.getPosition();
+            boolean dark = position.isDarkToMove();
+            long player = dark ? position.getDark() : position.getLight();
+            long opponent = dark ? position.getLight() : position.getDark();
+
+            int symmetry = Symmetry.canonical(player, opponent);
+            long key = OpeningBook.key(Symmetry.transform(player, symmetry),
+                    Symmetry.transform(opponent, symmetry));
+            Coord move = moves.get(i);
+            int square = Symmetry.transformSquare(move.y * 8 + move.x, symmetry);
+
+            BookPosition bookPosition = positions.get(key);
+            if (bookPosition == null) {
+                bookPosition = new BookPosition();
+                bookPosition.player = Symmetry.transform(player, symmetry);
+                bookPosition.opponent = Symmetry.transform(opponent, symmetry);
+                bookPosition.dark = dark;
+                positions.put(key, bookPosition);
+            }
+            bookPosition.counts[square]++;
+
+            board.makeMove(move);
+        }
+    }
+
+    /**
+     * Writes the book and returns count of its records
+     */
+    int write(OutputStream out) throws IOException {
+        SearchSettings settings = new SearchSettings();
+        settings.maxRunDepth = LEAF_DEPTH;
+        settings.maxRunTime = 0;
+        settings.maxRunNodes = 0;
+        settings.endgameEmpties = 0;
+        settings.endgameWinLossDrawEmpties = 0;
+        settings.searchThreads = 1;
+        settings.useOpeningBook = false;
+        leafBoard = new Board();
+        leafBoard.setSettings(settings);
+
+        Long[] keys = positions.keySet().toArray(new Long[0]);
+        Arrays.sort(keys);
+
+        int size = Math.max(keys.length, 16);
+        long[] recordKeys = new long[size];
+        int[] moves = new int[size];
+        int[] scores = new int[size];
+        int[] counts = new int[size];
+        int count = 0;
+
+        for (Long key: keys) {
+            BookPosition position = positions.get(key);
+            for (int square = 0; square < 64; square++) {
+                int games = position.counts[square];
+                if (games < MIN_COUNT) {
+                    continue;
+                }
+
+                if (count == recordKeys.length) {
+                    recordKeys = Arrays.copyOf(recordKeys, count * 2);
+                    moves = Arrays.copyOf(moves, count * 2);
+                    scores = Arrays.copyOf(scores, count * 2);
+                    counts = Arrays.copyOf(counts, count * 2);
+                }
+                recordKeys[count] = key;
+                moves[count] = square;
+                // A won or lost line has a value of thousands of pieces
+                int score = getMoveScore(position.player, position.opponent, position.dark, square);
+                scores[count] = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score));
+                counts[count] = games;
+                count++;
+            }
+        }
+
+        OpeningBook.write(out, recordKeys, moves, scores, counts, count);
+        return count;
+    }
+
+    /**
+     * Returns the value of the specified move for its player in tenths of
+     * pieces
+     */
+    private int getMoveScore(long player, long opponent, boolean dark, int square) {
+        long flips = BitBoard.getFlips(square, player, opponent);
+        long nextPlayer = opponent & ~flips;
+        long nextOpponent = player | flips | (1L << square);
+
+        if (BitBoard.getMoves(nextPlayer, nextOpponent) == 0 && BitBoard.getMoves(nextOpponent, nextPlayer) != 0) {
+            // The opponent passes
+            return getValue(nextOpponent, nextPlayer, dark);
+        }
+        return -getValue(nextPlayer, nextOpponent, !dark);
+    }
+
+    /**
+     * Returns the value of the specified position for the player to move
+     * in tenths of pieces: the best score of its book moves, or the value
+     * of a search if it has none
+     */
+    private int getValue(long player, long opponent, boolean dark) {
+        int symmetry = Symmetry.canonical(player, opponent);
+        long key = OpeningBook.key(Symmetry.transform(player, symmetry),
+                Symmetry.transform(opponent, symmetry));
+
+        Integer value = values.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        int result = Integer.MIN_VALUE;
+        BookPosition position = positions.get(key);
+        if (position != null) {
+            for (int square = 0; square < 64; square++) {
+                if (position.counts[square] >= MIN_COUNT) {
+                    result = Math.max(result,
+                            getMoveScore(position.player, position.opponent, position.dark, square));
+                }
+            }
+        }
+
+        if (result == Integer.MIN_VALUE) {
+            long moves = BitBoard.getMoves(player, opponent);
+            if (moves == 0) {
+                // The game is over
+                result = (Long.bitCount(player) - Long.bitCount(opponent)) * 10;
+            } else if (Long.bitCount(moves) == 1) {
+                // The board does not search an only move
+                result = getMoveScore(player, opponent, dark, Long.numberOfTrailingZeros(moves));
+            } else {
+                leafBoard.setPosition(dark ? new Position(player, opponent, true) :
+                        new Position(opponent, player, false));
+                result = leafBoard.search().getScore() * 10;
+            }
+        }
+
+        values.put(key, result);
+        return result;
+    }
+}
@@ -0,0 +1,354 @@
+package net.dynart.reversi;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates the weights of {@link PatternEvaluation} and writes them into
+ * the raw resource of the application:
+ * <pre>
+ * PatternWeightsGenerator [file [games]]
+ * </pre>
+ * The default file is app/src/main/res/raw/eval_weights.gz and the
+ * default count of games is 20000, which takes about 20 minutes.
+ * <p>
+ * First the weights are made from hand-made rules: the ones of the old
+ * evaluation (corners are good, their neighbours are bad while the corner
+ * is empty, few pieces are good) plus stable pieces on the edges. Then the
+ * computer plays games against itself with these weights, the last
+ * {@link #SOLVED_EMPTIES} moves perfectly, and the weights of every phase
+ * are fitted to the final results of the games. The symmetric orders of
+ * a pattern are fitted as one weight, see
+ * {@link PatternEvaluation#CANONICAL_INDEXES}. Pattern indexes which do
+ * not occur in the games keep the hand-made weights
+ */
+public class PatternWeightsGenerator {
+
+    /**
+     * Value of one piece of the final result. The hand-made weights use
+     * the same units
+     */
+    private static final int PIECE_VALUE = 8;
+
+    /**
+     * Count of random moves at the start of every game
+     */
+    private static final int RANDOM_MOVES = 8;
+
+    /**
+     * Count of empty cells from which the games are played perfectly
+     */
+    private static final int SOLVED_EMPTIES = 14;
+
+    /**
+     * Count of passes over the positions when the weights are fitted
+     */
+    private static final int EPOCHS = 40;
+
+    private static final int EDGE = 0;
+
+    private static final int CORNER_3X3 = 1;
+
+    public static void main(String[] args) throws IOException {
+        String fileName = args.length > 0 ? args[0] : "app/src/main/res/raw/eval_weights.gz";
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        short[][][] weights = generate();
+        if (games > 0) {
+            PatternEvaluation.setWeights(weights);
+            weights = fit(weights, play(games, new Random(games)));
+        }
+
+        OutputStream out = new FileOutputStream(fileName);
+        try {
+            PatternEvaluation.write(out, weights);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Positions of the played games with the final result for the dark
+     * player
+     */
+    static class Samples {
+        long[] dark = new long[1 << 16];
+
+        long[] light = new long[1 << 16];
+
+        int[] result = new int[1 << 16];
+
+        int count;
+
+        void add(long darkPieces, long lightPieces, int value) {
+            if (count == dark.length) {
+                dark = Arrays.copyOf(dark, count * 2);
+                light = Arrays.copyOf(light, count * 2);
+                result = Arrays.copyOf(result, count * 2);
+            }
+            dark[count] = darkPieces;
+            light[count] = lightPieces;
+            result[count] = value;
+            count++;
+        }
+    }
+
+    /**
+     * Plays the specified count of games with the current weights and
+     * returns their positions
+     */
+    static Samples play(int games, Random random) {
+        Board.maxRunTime = 0;
+        Board.maxRunNodes = 0;
+        Board.maxRunDepth = 2;
+        Board.endgameEmpties = SOLVED_EMPTIES;
+        Board.endgameWinLossDrawEmpties = 0;
+        Board.searchThreads = 1;
+
+        Samples samples = new Samples();
+        long[] dark = new long[64];
+        long[] light = new long[64];
+
+        Board board = new Board();
+        for (int game = 0; game < games; game++) {
+            board.setStartPosition();
+
+            int count = 0;
+            while (board.getGameResult() == Board.GameResult.UNKNOWN) {
+                Coord move;
+                if (count < RANDOM_MOVES) {
+                    Coord[] moves = board.getMoves();
+                    move = moves[random.nextInt(moves.length)];
+                } else {
+                    Position position = board.getPosition();
+                    dark[count] = position.getDark();
+                    light[count] = position.getLight();
+
+                    move = board.run();
+                }
+                board.makeMove(move);
+                count++;
+            }
+
+            int result = board.getDarkPiecesCount() - board.getLightPiecesCount();
+            for (int i = RANDOM_MOVES; i < count; i++) {
+                samples.add(dark[i], light[i], result * PIECE_VALUE);
+            }
+
+            if ((game + 1) % 1000 == 0) {
+                System.out.println((game + 1) + " games, " + samples.count + " positions");
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Fits the weights of every phase to the results of its positions
+     * and returns them
+     */
+    static short[][][] fit(short[][][] weights, Samples samples) {
+        int instances = PatternEvaluation.INSTANCES.length;
+        short[][][] result = PatternEvaluation.createWeights();
+
+        for (int phase = 0; phase < PatternEvaluation.PHASES; phase++) {
+            // Canonical pattern indexes of the positions of the phase
+            int count = 0;
+            for (int i = 0; i < samples.count; i++) {
+                if (phaseOf(samples, i) == phase) {
+                    count++;
+                }
+            }
+            int[] indexes = new int[count * instances];
+            int[] targets = new int[count];
+            for (int i = 0, j = 0; i < samples.count; i++) {
+                if (phaseOf(samples, i) == phase) {
+                    for (int k = 0; k < instances; k++) {
+                        int index = PatternEvaluation.index(
+                                PatternEvaluation.INSTANCES[k], samples.dark[i], samples.light[i]);
+                        indexes[j * instances + k] = canonicalIndex(PatternEvaluation.INSTANCE_FAMILIES[k], index);
+                    }
+                    targets[j] = samples.result[i];
+                    j++;
+                }
+            }
+
+            double[][] values = new double[PatternEvaluation.FAMILIES.length][];
+            double[][] gradients = new double[values.length][];
+            int[][] occurrences = new int[values.length][];
+            for (int family = 0; family < values.length; family++) {
+                short[] familyWeights = weights[phase][family];
+                values[family] = new double[familyWeights.length];
+                for (int i = 0; i < familyWeights.length; i++) {
+                    values[family][i] = (double) familyWeights[i] / PatternEvaluation.WEIGHT_SCALE;
+                }
+                gradients[family] = new double[familyWeights.length];
+                occurrences[family] = new int[familyWeights.length];
+            }
+
+            for (int epoch = 0; epoch < EPOCHS; epoch++) {
+                double error = 0;
+                for (int family = 0; family < values.length; family++) {
+                    Arrays.fill(gradients[family], 0);
+                    Arrays.fill(occurrences[family], 0);
+                }
+
+                for (int j = 0; j < count; j++) {
+                    double value = 0;
+                    for (int k = 0; k < instances; k++) {
+                        value += values[PatternEvaluation.INSTANCE_FAMILIES[k]][indexes[j * instances + k]];
+                    }
+                    double difference = targets[j] - value;
+                    error += difference * difference;
+
+                    for (int k = 0; k < instances; k++) {
+                        int family = PatternEvaluation.INSTANCE_FAMILIES[k];
+                        int index = indexes[j * instances + k];
+                        gradients[family][index] += difference;
+                        occurrences[family][index]++;
+                    }
+                }
+
+                // Every weight moves towards the mean error of its positions,
+                // shared among the patterns and damped for rare indexes
+                for (int family = 0; family < values.length; family++) {
+                    for (int i = 0; i < values[family].length; i++) {
+                        if (occurrences[family][i] > 0) {
+                            values[family][i] += gradients[family][i] /
+                                    (occurrences[family][i] + 10) * 2 / instances;
+                        }
+                    }
+                }
+
+                if (epoch == EPOCHS - 1) {
+                    System.out.println("phase " + phase + ": " + count + " positions, error " +
+                            Math.sqrt(error / Math.max(count, 1)) / PIECE_VALUE + " pieces");
+                }
+            }
+
+            for (int family = 0; family < values.length; family++) {
+                for (int i = 0; i < values[family].length; i++) {
+                    result[phase][family][i] = toWeight(values[family][canonicalIndex(family, i)]);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int canonicalIndex(int family, int index) {
+        int[] canonical = PatternEvaluation.CANONICAL_INDEXES[family];
+        return canonical != null ? canonical[index] : index;
+    }
+
+    private static int phaseOf(Samples samples, int i) {
+        return PatternEvaluation.phase(Long.bitCount(samples.dark[i] | samples.light[i]));
+    }
+
+    private static short toWeight(double value) {
+        long weight = Math.round(value * PatternEvaluation.WEIGHT_SCALE);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, weight));
+    }
+
+    /**
+     * Returns the hand-made weights by phase, family and pattern index
+     */
+    static short[][][] generate() {
+        // Count of patterns every cell is part of, the value of a piece is
+        // shared among them
+        int[] coverage = new int[64];
+        for (int[] cells: PatternEvaluation.INSTANCES) {
+            for (int cell: cells) {
+                coverage[cell]++;
+            }
+        }
+
+        short[][][] result = PatternEvaluation.createWeights();
+        for (int phase = 0; phase < PatternEvaluation.PHASES; phase++) {
+            double t = (double) phase / (PatternEvaluation.PHASES - 1);
+
+            for (int family = 0; family < PatternEvaluation.FAMILIES.length; family++) {
+                int[] cells = PatternEvaluation.FAMILIES[family];
+                short[] familyWeights = result[phase][family];
+                int[] pieces = new int[cells.length];
+
+                for (int index = 0; index < familyWeights.length; index++) {
+                    // Decode the index into PIECE_* values
+                    for (int i = 0, rest = index; i < cells.length; i++, rest /= 3) {
+                        int digit = rest % 3;
+                        pieces[i] = digit == 0 ? Board.PIECE_EMPTY :
+                                digit == 1 ? Board.PIECE_DARK : Board.PIECE_LIGHT;
+                    }
+
+                    double value = 0;
+                    for (int i = 0; i < cells.length; i++) {
+                        value += pieces[i] * discValue(t) / coverage[cells[i]];
+                    }
+                    if (family == CORNER_3X3) {
+                        value += cornerValue(pieces, t);
+                    } else if (family == EDGE) {
+                        value += edgeValue(pieces, t);
+                    }
+
+                    familyWeights[index] = toWeight(value);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns value of one piece: negative for most of the game, where
+     * few pieces keep more moves, and positive in the last phase
+     */
+    private static double discValue(double t) {
+        return t < 0.7 ? -1 : -1 + (t - 0.7) / 0.3 * 2;
+    }
+
+    /**
+     * Returns value of the corner, the X cell and the C cells of a 3x3
+     * corner pattern (cells 0, 4, 1 and 3)
+     */
+    private static double cornerValue(int[] pieces, double t) {
+        if (pieces[0] != Board.PIECE_EMPTY) {
+            return pieces[0] * (64 - 24 * t);
+        }
+        // Neighbours of an empty corner give it away
+        double neighbour = 16 * (1 - t / 2);
+        return -(pieces[4] * 1.5 + pieces[1] * 0.75 + pieces[3] * 0.75) * neighbour;
+    }
+
+    /**
+     * Returns value of the stable pieces of an edge pattern: the ones in
+     * a row of one color from a corner, or all of them on a full edge
+     */
+    private static double edgeValue(int[] pieces, double t) {
+        boolean full = true;
+        for (int piece: pieces) {
+            if (piece == Board.PIECE_EMPTY) {
+                full = false;
+            }
+        }
+
+        boolean[] stable = new boolean[pieces.length];
+        for (int i = 0; i < pieces.length; i++) {
+            stable[i] = full && pieces[i] != Board.PIECE_EMPTY;
+        }
+        for (int i = 0; i < pieces.length && pieces[i] != Board.PIECE_EMPTY && pieces[i] == pieces[0]; i++) {
+            stable[i] = true;
+        }
+        int last = pieces.length - 1;
+        for (int i = last; i >= 0 && pieces[i] != Board.PIECE_EMPTY && pieces[i] == pieces[last]; i--) {
+            stable[i] = true;
+        }
+
+        double result = 0;
+        for (int i = 0; i < pieces.length; i++) {
+            if (stable[i]) {
+                result += pieces[i] * 6 * (1 - t / 2);
+            }
+        }
+        return result;
+    }
+}
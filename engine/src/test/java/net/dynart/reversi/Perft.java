@@ -0,0 +1,74 @@
+package net.dynart.reversi;
+
+/**
+ * Counts the positions some plies after a position with
+ * {@link Board#perft(int)}, for every move and in total, and prints how
+ * many positions a second it takes:
+ * <pre>
+ * Perft [plies [position]]
+ * </pre>
+ * The default is 9 plies from the start position. The position has 64
+ * cells row by row from a1 ('X' dark, 'O' light, '-' empty) followed by
+ * the player to move, spaces are left out. The start position is
+ * "---------------------------OX------XO--------------------------- O"
+ */
+public class Perft {
+
+    public static void main(String[] args) {
+        int plies = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+
+        Board board = new Board(1 << 10);
+        if (args.length > 1) {
+            StringBuilder position = new StringBuilder();
+            for (int i = 1; i < args.length; i++) {
+                position.append(args[i]);
+            }
+            board.setPosition(parsePosition(position.toString()));
+        }
+
+        long start = System.nanoTime();
+        long[] counts = board.perftDivide(plies);
+        long time = System.nanoTime() - start;
+
+        long total = 0;
+        for (int square = 0; square < counts.length; square++) {
+            if (counts[square] > 0) {
+                System.out.println((char) ('a' + (square & 7)) + "" + ((square >> 3) + 1) + " " + counts[square]);
+                total += counts[square];
+            }
+        }
+        System.out.println("total " + total);
+        System.out.println(time / 1000000 + " ms, " + Math.round(total * 1e9 / Math.max(time, 1)) + " positions/s");
+    }
+
+    /**
+     * Returns the position of the specified text
+     *
+     * @see Perft
+     */
+    static Position parsePosition(String text) {
+        text = text.replaceAll("\\s", "").toUpperCase();
+        if (text.length() != 65) {
+            throw new IllegalArgumentException("A position has 64 cells and the player to move: " + text);
+        }
+
+        long dark = 0;
+        long light = 0;
+        for (int i = 0; i < 64; i++) {
+            char cell = text.charAt(i);
+            if (cell == 'X') {
+                dark |= 1L << i;
+            } else if (cell == 'O') {
+                light |= 1L << i;
+            } else if (cell != '-') {
+                throw new IllegalArgumentException("Unknown cell '" + cell + "': " + text);
+            }
+        }
+
+        char player = text.charAt(64);
+        if (player != 'X' && player != 'O') {
+            throw new IllegalArgumentException("Unknown player '" + player + "': " + text);
+        }
+        return new Position(dark, light, player == 'X');
+    }
+}
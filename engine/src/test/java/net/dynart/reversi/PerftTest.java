@@ -0,0 +1,142 @@
+package net.dynart.reversi;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the move generation of the calculation by {@link Board#perft(int)}
+ * against known counts and against a simple move generation
+ */
+public class PerftTest {
+
+    /**
+     * Counts of positions 1, 2... plies after the start position
+     */
+    private static final long[] START_COUNTS = {4, 12, 56, 244, 1396, 8200, 55092, 390216, 3005288};
+
+    private static final String START_POSITION =
+            "---------------------------OX------XO--------------------------- O";
+
+    private static final int[][] DIRECTIONS = {
+            {-1, -1}, {0, -1}, {1, -1}, {-1, 0}, {1, 0}, {-1, 1}, {0, 1}, {1, 1}};
+
+    @Test
+    public void startPosition() {
+        Board board = new Board(1 << 10);
+        for (int plies = 1; plies <= START_COUNTS.length; plies++) {
+            assertEquals("plies " + plies, START_COUNTS[plies - 1], board.perft(plies));
+        }
+    }
+
+    @Test
+    public void parsedStartPosition() {
+        Board board = new Board(1 << 10);
+        board.setPosition(Perft.parsePosition(START_POSITION));
+        assertEquals(START_COUNTS[6], board.perft(7));
+    }
+
+    @Test
+    public void divideStartPosition() {
+        // The 4 first moves are symmetric
+        long[] counts = new Board(1 << 10).perftDivide(6);
+        int moves = 0;
+        for (long count: counts) {
+            if (count != 0) {
+                assertEquals(START_COUNTS[5] / 4, count);
+                moves++;
+            }
+        }
+        assertEquals(4, moves);
+    }
+
+    @Test
+    public void noPlies() {
+        assertEquals(1, new Board(1 << 10).perft(0));
+    }
+
+    @Test
+    public void randomPositions() {
+        // Late positions of random games have passes and finished games
+        Random random = new Random(15);
+        Board board = new Board(1 << 10);
+        for (int game = 0; game < 40; game++) {
+            board.setStartPosition();
+            for (int ply = 0; board.getGameResult() == Board.GameResult.UNKNOWN; ply++) {
+                if (ply == 20 || ply >= 44 && ply % 3 == 0) {
+                    Position position = board.getPosition();
+                    int[] cells = new int[64];
+                    for (int i = 0; i < 64; i++) {
+                        cells[i] = (int) (position.getDark() >>> i & 1) - (int) (position.getLight() >>> i & 1);
+                    }
+                    int player = position.isDarkToMove() ? Board.PIECE_DARK : Board.PIECE_LIGHT;
+
+                    assertEquals("game " + game + " ply " + ply, simplePerft(cells, player, 4), board.perft(4));
+                }
+
+                Coord[] moves = board.getMoves();
+                board.makeMove(moves[random.nextInt(moves.length)]);
+            }
+        }
+    }
+
+    /**
+     * Returns the perft count of the cells (PIECE_* values) with the moves
+     * of {@link #simpleMoves(int[], int)}
+     */
+    private static long simplePerft(int[] cells, int player, int plies) {
+        if (plies == 0) {
+            return 1;
+        }
+
+        ArrayList<int[]> moves = simpleMoves(cells, player);
+        if (moves.isEmpty()) {
+            // A pass, unless the opponent can't move either
+            return simpleMoves(cells, -player).isEmpty() ? 1 : simplePerft(cells, -player, plies - 1);
+        }
+
+        long result = 0;
+        for (int[] next: moves) {
+            result += simplePerft(next, -player, plies - 1);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cells after every move of the player, found by walking
+     * every direction from every empty cell
+     */
+    private static ArrayList<int[]> simpleMoves(int[] cells, int player) {
+        ArrayList<int[]> result = new ArrayList<int[]>();
+        for (int square = 0; square < 64; square++) {
+            if (cells[square] != Board.PIECE_EMPTY) {
+                continue;
+            }
+
+            int[] next = cells.clone();
+            for (int[] direction: DIRECTIONS) {
+                int x = (square & 7) + direction[0];
+                int y = (square >> 3) + direction[1];
+                int count = 0;
+                while (x >= 0 && x < 8 && y >= 0 && y < 8 && cells[y * 8 + x] == -player) {
+                    x += direction[0];
+                    y += direction[1];
+                    count++;
+                }
+                if (count > 0 && x >= 0 && x < 8 && y >= 0 && y < 8 && cells[y * 8 + x] == player) {
+                    for (int i = 0; i <= count; i++) {
+                        next[square + i * (direction[1] * 8 + direction[0])] = player;
+                    }
+                }
+            }
+
+            if (next[square] == player) {
+                result.add(next);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,167 @@
+package net.dynart.reversi;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link Board#search()} at fixed depths against a plain minimax
+ * search with the same position values, on the opening and middle game
+ * positions of the benchmark corpus
+ */
+public class SearchTest {
+
+    private static final Position[] POSITIONS = {
+            new Position(0x0000002010203020L, 0x0000001C081C001CL, false),
+            new Position(0x000000084C283800L, 0x001C081010100400L, true),
+            new Position(0x00004048407E0000L, 0x0000801038002000L, false),
+            new Position(0x2020380800020000L, 0x000000341E140400L, true),
+            new Position(0x040CF4E4FD400000L, 0x30300A1A02030000L, false),
+            new Position(0x1C0404CC0EC10000L, 0x00001331F0342438L, true),
+            new Position(0x3C10F31030302000L, 0x000C0CEECC400000L, false),
+            new Position(0x00000F0C0F072410L, 0x1010303330781804L, true)};
+
+    private static final int MAX_DEPTH = 3;
+
+    /**
+     * Board whose position values the minimax search uses, they depend on
+     * its random noise
+     */
+    private Board board;
+
+    /**
+     * Set when the minimax search met a position which it does not value
+     * the way the calculation does
+     */
+    private boolean unsupported;
+
+    /**
+     * Loads the evaluation weights of the application, so the evaluation
+     * which is played with is checked
+     */
+    @BeforeClass
+    public static void loadEvaluation() throws IOException {
+        if (PatternEvaluation.isLoaded()) {
+            return;
+        }
+
+        InputStream in = SearchTest.class.getResourceAsStream("/eval_weights.gz");
+        assertNotNull("Evaluation weights not found", in);
+        try {
+            PatternEvaluation.load(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void searchEqualsMinimax() {
+        int checked = 0;
+        for (int i = 0; i < POSITIONS.length; i++) {
+            Position position = POSITIONS[i];
+            board = new Board(1 << 16);
+
+            // The depths share the transposition table, which orders the
+            // moves of the deeper steps. The last depth is searched twice,
+            // the second time with its own results in the table, so the
+            // values come from cutoffs of the table
+            for (int depth = 1; depth <= MAX_DEPTH + 1; depth++) {
+                int searchDepth = Math.min(depth, MAX_DEPTH);
+                SearchResult result = search(position, searchDepth);
+
+                // The calculation searches one ply past its depth
+                unsupported = false;
+                boolean dark = position.isDarkToMove();
+                long player = dark ? position.getDark() : position.getLight();
+                long opponent = dark ? position.getLight() : position.getDark();
+                int value = minimax(player, opponent, dark, searchDepth + 1);
+                int moveSquare = result.getMove().y * 8 + result.getMove().x;
+                int moveValue = minimaxMove(player, opponent, dark, moveSquare, searchDepth + 1);
+                if (unsupported) {
+                    continue;
+                }
+
+                String message = "position " + i + " depth " + searchDepth;
+                assertEquals(message, value, result.getScore());
+                assertEquals(message + " move " + moveSquare, value, moveValue);
+                checked++;
+            }
+        }
+        assertTrue(checked >= POSITIONS.length * MAX_DEPTH);
+    }
+
+    private SearchResult search(Position position, int depth) {
+        SearchSettings settings = new SearchSettings();
+        settings.maxRunDepth = depth;
+        settings.maxRunTime = 0;
+        settings.maxRunNodes = 0;
+        settings.endgameEmpties = 0;
+        settings.endgameWinLossDrawEmpties = 0;
+        settings.searchThreads = 1;
+        settings.useOpeningBook = false;
+
+        board.setSettings(settings);
+        board.setPosition(position);
+        SearchResult result = board.search();
+        assertEquals(SearchResult.Source.SEARCH, result.getSource());
+        return result;
+    }
+
+    /**
+     * Returns the value of the position for the player to move after the
+     * specified count of plies, without any pruning. A pass does not count
+     * as a ply
+     */
+    private int minimax(long player, long opponent, boolean dark, int plies) {
+        long moves = BitBoard.getMoves(player, opponent);
+        if (moves == 0) {
+            if (BitBoard.getMoves(opponent, player) == 0) {
+                // The calculation values the end of the game by its result
+                unsupported = true;
+                return 0;
+            }
+            return -minimax(opponent, player, !dark, plies);
+        }
+
+        int result = Integer.MIN_VALUE;
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+
+            result = Math.max(result, minimaxMove(player, opponent, dark, square, plies));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value of the specified move for its player
+     *
+     * @see #minimax(long, long, boolean, int)
+     */
+    private int minimaxMove(long player, long opponent, boolean dark, int square, int plies) {
+        long flips = BitBoard.getFlips(square, player, opponent);
+        long nextPlayer = opponent & ~flips;
+        long nextOpponent = player | flips | (1L << square);
+
+        if (plies > 1) {
+            return -minimax(nextPlayer, nextOpponent, !dark, plies - 1);
+        }
+
+        // The board passes for a player without moves, which changes the
+        // noise of the value. The calculation does not pass at its horizon
+        if (BitBoard.getMoves(nextPlayer, nextOpponent) == 0 &&
+                BitBoard.getMoves(nextOpponent, nextPlayer) != 0) {
+            unsupported = true;
+            return 0;
+        }
+
+        board.setPosition(dark ? new Position(nextOpponent, nextPlayer, false) :
+                new Position(nextPlayer, nextOpponent, true));
+        int value = board.getPosValue();
+        return dark ? value : -value;
+    }
+}
@@ -0,0 +1,110 @@
+package net.dynart.reversi;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the mapping of masks and cells by {@link Symmetry}, and that the
+ * pattern evaluation values symmetric positions the same
+ */
+public class SymmetryTest {
+
+    /**
+     * Loads the evaluation weights of the application, so the evaluation
+     * which is played with is checked
+     */
+    @BeforeClass
+    public static void loadEvaluation() throws IOException {
+        if (PatternEvaluation.isLoaded()) {
+            return;
+        }
+
+        InputStream in = SymmetryTest.class.getResourceAsStream("/eval_weights.gz");
+        assertNotNull("Evaluation weights not found", in);
+        try {
+            PatternEvaluation.load(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void transformRoundTrip() {
+        Random random = new Random(8);
+        for (int symmetry = 0; symmetry < Symmetry.COUNT; symmetry++) {
+            int inverse = Symmetry.inverse(symmetry);
+            for (int i = 0; i < 100; i++) {
+                long bits = random.nextLong();
+                long transformed = Symmetry.transform(bits, symmetry);
+                assertEquals(Long.bitCount(bits), Long.bitCount(transformed));
+                assertEquals("symmetry " + symmetry, bits, Symmetry.transform(transformed, inverse));
+            }
+        }
+    }
+
+    @Test
+    public void transformSquareRoundTrip() {
+        for (int symmetry = 0; symmetry < Symmetry.COUNT; symmetry++) {
+            long image = 0;
+            for (int square = 0; square < 64; square++) {
+                int transformed = Symmetry.transformSquare(square, symmetry);
+                image |= 1L << transformed;
+
+                // The cell goes where the mask moves its bit
+                assertEquals(1L << transformed, Symmetry.transform(1L << square, symmetry));
+                assertEquals("symmetry " + symmetry + " square " + square,
+                        square, Symmetry.inverseSquare(transformed, symmetry));
+            }
+            assertEquals(-1L, image);
+        }
+    }
+
+    @Test
+    public void canonicalForm() {
+        Random random = new Random(18);
+        for (int i = 0; i < 100; i++) {
+            long player = random.nextLong() & random.nextLong();
+            long opponent = random.nextLong() & ~player;
+            int symmetry = Symmetry.canonical(player, opponent);
+            long canonicalPlayer = Symmetry.transform(player, symmetry);
+            long canonicalOpponent = Symmetry.transform(opponent, symmetry);
+
+            // Every form of the position has the same canonical form
+            for (int other = 0; other < Symmetry.COUNT; other++) {
+                long otherPlayer = Symmetry.transform(player, other);
+                long otherOpponent = Symmetry.transform(opponent, other);
+                int otherSymmetry = Symmetry.canonical(otherPlayer, otherOpponent);
+                assertEquals(canonicalPlayer, Symmetry.transform(otherPlayer, otherSymmetry));
+                assertEquals(canonicalOpponent, Symmetry.transform(otherOpponent, otherSymmetry));
+            }
+        }
+    }
+
+    @Test
+    public void symmetricPositionsEvaluateEqual() {
+        Random random = new Random(30);
+        Board board = new Board(1 << 10);
+        for (int game = 0; game < 30; game++) {
+            board.setStartPosition();
+            for (int ply = 0; ply < 2 + game * 2 && board.getGameResult() == Board.GameResult.UNKNOWN; ply++) {
+                Coord[] moves = board.getMoves();
+                board.makeMove(moves[random.nextInt(moves.length)]);
+            }
+            Position position = board.getPosition();
+            int piecesCount = board.getDarkPiecesCount() + board.getLightPiecesCount();
+
+            int value = PatternEvaluation.evaluate(position.getDark(), position.getLight(), piecesCount);
+            for (int symmetry = 1; symmetry < Symmetry.COUNT; symmetry++) {
+                assertEquals("game " + game + " symmetry " + symmetry, value, PatternEvaluation.evaluate(
+                        Symmetry.transform(position.getDark(), symmetry),
+                        Symmetry.transform(position.getLight(), symmetry), piecesCount));
+            }
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package net.dynart.reversi;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays games between two settings of the computer and prints how much
+ * stronger the first one is:
+ * <pre>
+ * Tournament [-games count] [-threads count] [-plies count] [-seed seed] first second
+ * </pre>
+ * A setting is a comma-separated list of these keys, the others are the
+ * static settings of {@link Board} with one thread and without book:
+ * <pre>
+ * depth=5        fixed depth
+ * time=100       time per move in milliseconds
+ * nodes=20000    searched positions per move
+ * endgame=12     empty cells of the exact endgame calculation
+ * wld=16         empty cells of the win/loss/draw calculation
+ * threads=1      calculation threads per move
+ * eval=pattern   evaluation: pattern or simple
+ * tt=1048576     transposition table size in bytes
+ * book=file      opening book file
+ * name=text      name in the report
+ * </pre>
+ * The games start from the positions {@code -plies} moves (6 by default)
+ * after the start, symmetric positions only once, in random order. Every
+ * opening is played twice with the colors swapped, so an unbalanced
+ * opening favors neither side. The games run in parallel in
+ * {@code -threads} threads (all cores by default), every thread with
+ * its own boards. The report gives the win rate, the Elo difference with
+ * its 95% confidence interval and the time and searched positions per
+ * move of both settings.
+ * <p>
+ * The evaluation weights are read from
+ * app/src/main/res/raw/eval_weights.gz if it exists. From Gradle:
+ * <pre>
+ * ./gradlew :engine:tournament -Pargs="-games 2000 depth=6 time=50"
+ * </pre>
+ */
+public class Tournament {
+
+    /**
+     * One of the compared settings with its counters
+     */
+    static class Player {
+        final String name;
+
+        final SearchSettings settings = new SearchSettings();
+
+        int transpositionTableSize = Board.DEFAULT_TRANSPOSITION_TABLE_SIZE;
+
+        OpeningBook openingBook;
+
+        long moves;
+
+        long nanos;
+
+        long nodes;
+
+        Player(String spec) throws IOException {
+            settings.searchThreads = 1;
+            settings.useOpeningBook = false;
+
+            String specName = spec;
+            for (String entry: spec.split(",")) {
+                int separator = entry.indexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Setting without value: " + entry);
+                }
+                String key = entry.substring(0, separator).trim();
+                String value = entry.substring(separator + 1).trim();
+
+                if (key.equals("depth")) {
+                    settings.maxRunDepth = Integer.parseInt(value);
+                } else if (key.equals("time")) {
+                    settings.maxRunTime = Long.parseLong(value);
+                } else if (key.equals("nodes")) {
+                    settings.maxRunNodes = Long.parseLong(value);
+                } else if (key.equals("endgame")) {
+                    settings.endgameEmpties = Integer.parseInt(value);
+                } else if (key.equals("wld")) {
+                    settings.endgameWinLossDrawEmpties = Integer.parseInt(value);
+                } else if (key.equals("threads")) {
+                    settings.searchThreads = Integer.parseInt(value);
+                } else if (key.equals("eval")) {
+                    if (!value.equals("pattern") && !value.equals("simple")) {
+                        throw new IllegalArgumentException("Unknown evaluation: " + value);
+                    }
+                    settings.usePatternEvaluation = value.equals("pattern");
+                } else if (key.equals("tt")) {
+                    transpositionTableSize = Integer.parseInt(value);
+                } else if (key.equals("book")) {
+                    openingBook = OpeningBook.open(new File(value));
+                    settings.useOpeningBook = true;
+                } else if (key.equals("name")) {
+                    specName = value;
+                } else {
+                    throw new IllegalArgumentException("Unknown setting: " + key);
+                }
+            }
+            name = specName;
+        }
+
+        Board createBoard() {
+            Board board = new Board(transpositionTableSize);
+            board.setSettings(settings);
+            board.setOpeningBook(openingBook);
+            return board;
+        }
+
+        synchronized void add(SearchResult result) {
+            moves++;
+            nanos += result.getElapsedNanos();
+            nodes += result.getNodes();
+        }
+    }
+
+    private final Player first;
+
+    private final Player second;
+
+    /**
+     * Results of the games for the first player
+     */
+    private int wins;
+
+    private int draws;
+
+    private int losses;
+
+    private int pieces;
+
+    private Tournament(Player first, Player second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int plies = 6;
+        long seed = 1;
+        ArrayList<String> specs = new ArrayList<String>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-games")) {
+                games = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-plies")) {
+                plies = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-seed")) {
+                seed = Long.parseLong(args[++i]);
+            } else {
+                specs.add(args[i]);
+            }
+        }
+        if (specs.size() != 2) {
+            System.err.println("Usage: Tournament [-games count] [-threads count] [-plies count] " +
+                    "[-seed seed] first second");
+            System.exit(2);
+        }
+
+        File weights = new File("app/src/main/res/raw/eval_weights.gz");
+        if (weights.exists()) {
+            InputStream in = new FileInputStream(weights);
+            try {
+                PatternEvaluation.load(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        Tournament tournament = new Tournament(new Player(specs.get(0)), new Player(specs.get(1)));
+        List<Position> openings = createOpenings(plies, new Random(seed));
+        System.out.println(openings.size() + " openings of " + plies + " plies, " + games + " games, " +
+                threads + " threads");
+
+        tournament.play(openings, games, threads);
+        tournament.report();
+    }
+
+    /**
+     * Returns the positions the specified count of plies after the start
+     * position, symmetric ones only once, in random order
+     */
+    static List<Position> createOpenings(int plies, Random random) {
+        ArrayList<Position> result = new ArrayList<Position>();
+        addOpenings(new Board(1 << 10), plies, new HashSet<String>(), result);
+        Collections.shuffle(result, random);
+        return result;
+    }
+
+    private static void addOpenings(Board board, int plies, Set<String> keys, List<Position> result) {
+        if (board.getGameResult() != Board.GameResult.UNKNOWN) {
+            return;
+        }
+
+        Position position = board.getPosition();
+        if (plies == 0) {
+            boolean dark = position.isDarkToMove();
+            long player = dark ? position.getDark() : position.getLight();
+            long opponent = dark ? position.getLight() : position.getDark();
+            int symmetry = Symmetry.canonical(player, opponent);
+            String key = Symmetry.transform(player, symmetry) + "/" + Symmetry.transform(opponent, symmetry);
+            if (keys.add(key)) {
+                result.add(position);
+            }
+            return;
+        }
+
+        for (Coord move: board.getMoves()) {
+            board.makeMove(move);
+            addOpenings(board, plies - 1, keys, result);
+            board.setPosition(position);
+        }
+    }
+
+    /**
+     * Plays the games in parallel and prints the progress
+     */
+    private void play(final List<Position> openings, final int games, int threads) throws InterruptedException {
+        final ThreadLocal<Board[]> boards = new ThreadLocal<Board[]>() {
+            @Override
+            protected Board[] initialValue() {
+                return new Board[] {first.createBoard(), second.createBoard(), new Board(1 << 10)};
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < games; i++) {
+            final int game = i;
+            executor.execute(new Runnable() {
+                public void run() {
+                    Position opening = openings.get(game / 2 % openings.size());
+                    int result = playGame(boards.get(), opening, game % 2 == 0);
+                    addResult(result, games);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    /**
+     * Plays a game from the opening and returns its result for the first
+     * player in pieces
+     */
+    private int playGame(Board[] boards, Position opening, boolean firstIsDark) {
+        Board referee = boards[2];
+        referee.setPosition(opening);
+
+        // New games, so nothing is left in the transposition tables
+        boards[0].setStartPosition();
+        boards[1].setStartPosition();
+
+        while (referee.getGameResult() == Board.GameResult.UNKNOWN) {
+            Position position = referee.getPosition();
+            boolean firstMoves = position.isDarkToMove() == firstIsDark;
+            Board board = boards[firstMoves ? 0 : 1];
+
+            board.setPosition(position);
+            SearchResult result = board.search();
+            (firstMoves ? first : second).add(result);
+            referee.makeMove(result.getMove());
+        }
+
+        int result = referee.getDarkPiecesCount() - referee.getLightPiecesCount();
+        return firstIsDark ? result : -result;
+    }
+
+    private synchronized void addResult(int result, int games) {
+        if (result > 0) {
+            wins++;
+        } else if (result == 0) {
+            draws++;
+        } else {
+            losses++;
+        }
+        pieces += result;
+
+        int played = wins + draws + losses;
+        if (played % Math.max(games / 20, 1) == 0 || played == games) {
+            System.out.println(String.format(Locale.US, "%d/%d games: +%d =%d -%d, Elo %s",
+                    played, games, wins, draws, losses, formatElo()));
+        }
+    }
+
+    /**
+     * Prints the results and the costs of the settings
+     */
+    private void report() {
+        int games = wins + draws + losses;
+        System.out.println();
+        System.out.println(first.name + " vs " + second.name);
+        System.out.println(String.format(Locale.US, "games %d: wins %d, draws %d, losses %d",
+                games, wins, draws, losses));
+        System.out.println(String.format(Locale.US, "score %.1f%%, pieces %+.2f per game",
+                score() * 100, (double) pieces / Math.max(games, 1)));
+        System.out.println("Elo " + formatElo() + " (95%)");
+        for (Player player: new Player[] {first, second}) {
+            long moves = Math.max(player.moves, 1);
+            System.out.println(String.format(Locale.US,
+                    "%s: %d moves, %.2f ms and %d nodes per move, %d nodes/s",
+                    player.name, player.moves, player.nanos / 1e6 / moves, player.nodes / moves,
+                    player.nanos == 0 ? 0 : Math.round(player.nodes * 1e9 / player.nanos)));
+        }
+    }
+
+    /**
+     * Returns part of the points won by the first player, a draw is half
+     * a point
+     */
+    private double score() {
+        int games = wins + draws + losses;
+        return games == 0 ? 0.5 : (wins + draws * 0.5) / games;
+    }
+
+    /**
+     * Returns the Elo difference of the score with the half width of its
+     * 95% confidence interval
+     */
+    private String formatElo() {
+        int games = wins + draws + losses;
+        double score = score();
+
+        // Standard error of the mean points of a game
+        double variance = games == 0 ? 0 : (wins * (1 - score) * (1 - score) +
+                draws * (0.5 - score) * (0.5 - score) + losses * score * score) / games;
+        double error = Math.sqrt(variance / Math.max(games, 1)) * 1.96;
+
+        double margin = (elo(score + error) - elo(score - error)) / 2;
+        return String.format(Locale.US, "%+.1f +- %.1f", elo(score), margin);
+    }
+
+    /**
+     * Returns the Elo difference which gives the specified expected score
+     */
+    private static double elo(double score) {
+        double clamped = Math.max(0.001, Math.min(0.999, score));
+        return -400 * Math.log10(1 / clamped - 1);
+    }
+}
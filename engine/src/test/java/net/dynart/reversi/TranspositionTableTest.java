@@ -0,0 +1,67 @@
+package net.dynart.reversi;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link TranspositionTable} returns what was stored and
+ * tells positions apart which share a slot
+ */
+public class TranspositionTableTest {
+
+    @Test
+    public void storeAndProbe() {
+        TranspositionTable table = new TranspositionTable(1 << 10);
+        long key = 0x123456789ABCDEF0L;
+
+        assertEquals(0, table.probe(key));
+        assertFalse(table.isOccupied(key));
+
+        table.store(key, -1234, 17, TranspositionTable.BOUND_LOWER, 63);
+        long value = table.probe(key);
+        assertTrue(value != 0);
+        assertEquals(-1234, TranspositionTable.score(value));
+        assertEquals(17, TranspositionTable.depth(value));
+        assertEquals(TranspositionTable.BOUND_LOWER, TranspositionTable.bound(value));
+        assertEquals(63, TranspositionTable.move(value));
+
+        // An entry with only zero fields is still found
+        table.store(key, 0, 0, TranspositionTable.BOUND_EXACT, 0);
+        value = table.probe(key);
+        assertTrue(value != 0);
+        assertEquals(0, TranspositionTable.score(value));
+        assertEquals(TranspositionTable.BOUND_EXACT, TranspositionTable.bound(value));
+
+        table.store(key, 1, 1, TranspositionTable.BOUND_UPPER, TranspositionTable.NO_MOVE);
+        assertEquals(TranspositionTable.NO_MOVE, TranspositionTable.move(table.probe(key)));
+
+        table.clear();
+        assertEquals(0, table.probe(key));
+    }
+
+    @Test
+    public void collision() {
+        TranspositionTable table = new TranspositionTable(1 << 10);
+        long key = 0x0FEDCBA987654321L;
+        // Same low bits, so the same slot
+        long otherKey = key ^ 0x7000000000000000L;
+
+        table.store(key, 50, 3, TranspositionTable.BOUND_UPPER, 10);
+        assertEquals(0, table.probe(otherKey));
+        assertTrue(table.isOccupied(otherKey));
+
+        // The slot is always replaced
+        table.store(otherKey, -50, 4, TranspositionTable.BOUND_EXACT, 20);
+        assertEquals(0, table.probe(key));
+        assertEquals(-50, TranspositionTable.score(table.probe(otherKey)));
+        assertEquals(20, TranspositionTable.move(table.probe(otherKey)));
+    }
+
+    @Test
+    public void capacity() {
+        assertEquals(64, new TranspositionTable(1 << 10).getCapacity());
+        assertEquals(64, new TranspositionTable((1 << 11) - 1).getCapacity());
+        assertEquals(1, new TranspositionTable(0).getCapacity());
+    }
+}